@@ -0,0 +1,140 @@
+package org.globsframework.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/*
+Base64 (RFC 4648, same output as Base64.getEncoder()) by chunks of CHUNK_BYTES bytes (CHUNK_CHARS chars).
+The encode write to the json writer chunk by chunk : no String of the whole encoded value.
+The decode is not streaming : it start from the whole base64 String given by JsonReader.nextString()
+(gson has no streaming read of a string value), only the intermediate copies of the decoded byte[] are avoided.
+A large blob still cost its full size String on read.
+A chunk is a multiple of 3 bytes / 4 chars, the padding is only in the last one (and can be omitted when decoding).
+ */
+class Base64Chunks {
+    static final int CHUNK_BYTES = 3 * 1024;
+    static final int CHUNK_CHARS = 4 * 1024;
+    private static final char[] TO_BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] FROM_BASE64 = new int[128];
+
+    static {
+        Arrays.fill(FROM_BASE64, -1);
+        for (int i = 0; i < TO_BASE64.length; i++) {
+            FROM_BASE64[TO_BASE64[i]] = i;
+        }
+    }
+
+    private Base64Chunks() {
+    }
+
+    // '=' is escaped by a JsonWriter in html safe mode.
+    static void write(Writer out, byte[] value, boolean htmlSafe) throws IOException {
+        char[] chars = new char[CHUNK_CHARS];
+        for (int start = 0; start < value.length; start += CHUNK_BYTES) {
+            int length = Math.min(CHUNK_BYTES, value.length - start);
+            writeChars(out, chars, encode(value, start, length, chars), htmlSafe);
+        }
+    }
+
+    private static int encode(byte[] src, int offset, int length, char[] dst) {
+        int end = offset + length - length % 3;
+        int j = 0;
+        for (int i = offset; i < end; i += 3) {
+            int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+            dst[j++] = TO_BASE64[(bits >>> 18) & 0x3f];
+            dst[j++] = TO_BASE64[(bits >>> 12) & 0x3f];
+            dst[j++] = TO_BASE64[(bits >>> 6) & 0x3f];
+            dst[j++] = TO_BASE64[bits & 0x3f];
+        }
+        int remaining = length % 3;
+        if (remaining != 0) {
+            int bits = (src[end] & 0xff) << 16 | (remaining == 2 ? (src[end + 1] & 0xff) << 8 : 0);
+            dst[j++] = TO_BASE64[(bits >>> 18) & 0x3f];
+            dst[j++] = TO_BASE64[(bits >>> 12) & 0x3f];
+            dst[j++] = remaining == 2 ? TO_BASE64[(bits >>> 6) & 0x3f] : '=';
+            dst[j++] = '=';
+        }
+        return j;
+    }
+
+    private static void writeChars(Writer out, char[] chars, int length, boolean htmlSafe) throws IOException {
+        int padding = 0;
+        while (htmlSafe && padding < length && chars[length - 1 - padding] == '=') {
+            padding++;
+        }
+        out.write(chars, 0, length - padding);
+        for (int i = 0; i < padding; i++) {
+            out.write("\\u003d");
+        }
+    }
+
+    static byte[] decode(String base64) {
+        byte[] decoded = new byte[decodedLength(base64)];
+        decode(base64, 0, base64.length(), decoded, 0);
+        return decoded;
+    }
+
+    // as Base64.getDecoder() the padding can be omitted : the chars after the last group of 4 are the end of the data.
+    private static int decodedLength(String base64) {
+        int length = base64.length();
+        int chars = length - padding(base64, length);
+        if (chars % 4 == 1) {
+            throw new IllegalArgumentException("Illegal base64 length : " + length);
+        }
+        return chars / 4 * 3 + (chars % 4 == 0 ? 0 : chars % 4 - 1);
+    }
+
+    private static int padding(String base64, int length) {
+        int padding = 0;
+        while (padding < 2 && padding < length && base64.charAt(length - 1 - padding) == '=') {
+            padding++;
+        }
+        if (padding != 0 && length % 4 != 0) {
+            throw new IllegalArgumentException("Base64 length with padding is not a multiple of 4 : " + length);
+        }
+        return padding;
+    }
+
+    // start is a multiple of 4, end too or end is the length of base64 : only the last group can contain padding or be shorter.
+    private static int decode(String base64, int start, int end, byte[] dst, int offset) {
+        int j = offset;
+        int last = end == base64.length() ? end - padding(base64, end) : end;
+        int full = start + (last - start) / 4 * 4;
+        if ((end - start) % 4 != 0 && end != base64.length()) {
+            throw new IllegalArgumentException("Base64 chunk is not a multiple of 4 : " + start + " to " + end);
+        }
+        for (int i = start; i < full; i += 4) {
+            int bits = value(base64, i) << 18 | value(base64, i + 1) << 12 | value(base64, i + 2) << 6 | value(base64, i + 3);
+            dst[j++] = (byte) (bits >> 16);
+            dst[j++] = (byte) (bits >> 8);
+            dst[j++] = (byte) bits;
+        }
+        switch (last - full) {
+            case 0:
+                break;
+            case 2:
+                dst[j++] = (byte) (value(base64, full) << 2 | value(base64, full + 1) >> 4);
+                break;
+            case 3: {
+                int c1 = value(base64, full + 1);
+                dst[j++] = (byte) (value(base64, full) << 2 | c1 >> 4);
+                dst[j++] = (byte) (c1 << 4 | value(base64, full + 2) >> 2);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Illegal base64 length : " + base64.length());
+        }
+        return j - offset;
+    }
+
+    private static int value(String base64, int index) {
+        char c = base64.charAt(index);
+        int value = c < 128 ? FROM_BASE64[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Illegal base64 character " + Integer.toHexString(c) + " at " + index);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.globsframework.json;
+
+import org.globsframework.metamodel.GlobType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Keep the result of the resolver : the found types and the not found names (for missTtl only, a type can be added later).
+snapshot() give an immutable resolver of the types found so far.
+ */
+public class CachedGlobTypeResolver implements GlobTypeResolver {
+    private final GlobTypeResolver resolver;
+    private final long missTtlNanos;
+    private final Map<String, Object> cache = new ConcurrentHashMap<>(); // GlobType or miss deadline (Long)
+
+    public CachedGlobTypeResolver(GlobTypeResolver resolver, long missTtl, TimeUnit unit) {
+        this.resolver = resolver;
+        this.missTtlNanos = unit.toNanos(missTtl);
+    }
+
+    public GlobType find(String name) {
+        Object cached = cache.get(name);
+        if (cached instanceof GlobType) {
+            return (GlobType) cached;
+        }
+        if (cached != null && System.nanoTime() - (Long) cached < 0) {
+            return null;
+        }
+        GlobType globType = resolver.find(name);
+        if (globType != null) {
+            cache.put(name, globType);
+        } else if (missTtlNanos > 0) {
+            cache.put(name, System.nanoTime() + missTtlNanos);
+        }
+        return globType;
+    }
+
+    public void invalidate(String name) {
+        cache.remove(name);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public GlobTypeResolver snapshot() {
+        List<GlobType> types = new ArrayList<>();
+        for (Object value : cache.values()) {
+            if (value instanceof GlobType) {
+                types.add((GlobType) value);
+            }
+        }
+        return snapshot(types.toArray(new GlobType[0]));
+    }
+
+    public static GlobTypeResolver snapshot(Iterable<String> names, GlobTypeResolver resolver) {
+        List<GlobType> types = new ArrayList<>();
+        for (String name : names) {
+            GlobType globType = resolver.find(name);
+            if (globType != null) {
+                types.add(globType);
+            }
+        }
+        return snapshot(types.toArray(new GlobType[0]));
+    }
+
+    public static GlobTypeResolver snapshot(GlobType... types) {
+        return new Snapshot(types);
+    }
+
+    // open addressing with linear probing, the table is at most half full.
+    static class Snapshot implements GlobTypeResolver {
+        private final String[] names;
+        private final GlobType[] types;
+        private final int mask;
+
+        Snapshot(GlobType[] globTypes) {
+            int capacity = Integer.highestOneBit(Math.max(2, globTypes.length) * 2 - 1) << 1;
+            names = new String[capacity];
+            types = new GlobType[capacity];
+            mask = capacity - 1;
+            for (GlobType globType : globTypes) {
+                int i = spread(globType.getName().hashCode()) & mask;
+                while (names[i] != null && !names[i].equals(globType.getName())) {
+                    i = (i + 1) & mask;
+                }
+                if (names[i] == null) {
+                    names[i] = globType.getName();
+                    types[i] = globType;
+                }
+            }
+        }
+
+        public GlobType find(String name) {
+            int i = spread(name.hashCode()) & mask;
+            String current;
+            while ((current = names[i]) != null) {
+                if (current.equals(name)) {
+                    return types[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.globsframework.json;
+
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.fields.AbstractFieldValueVisitor;
+import org.globsframework.model.*;
+import org.globsframework.model.delta.DefaultFixStateChangeSet;
+import org.globsframework.model.delta.DeltaGlob;
+import org.globsframework.model.delta.FixStateChangeSet;
+
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Fold a sequence of changeSets in one net changeSet :
+create + update => create, create + delete => nothing, update + update => update (with the first previous values),
+update + delete => delete, delete + create => update.
+Only the values of the last state of each key are kept.
+ */
+public class ChangeSetCoalescer implements ChangeSetVisitor {
+    private final Map<Key, Change> changes;
+
+    public ChangeSetCoalescer() {
+        this(16);
+    }
+
+    public ChangeSetCoalescer(int expectedKeyCount) {
+        changes = new LinkedHashMap<>(Math.max(16, (int) (expectedKeyCount / 0.75f) + 1));
+    }
+
+    public ChangeSetCoalescer add(ChangeSet changeSet) {
+        changeSet.safeVisit(this);
+        return this;
+    }
+
+    // changes are coalesced while read, globs created in a previous changeSet are resolved from the pending creations.
+    public ChangeSetCoalescer add(Reader reader, GlobTypeResolver resolver, GlobAccessor globAccessor, int lookAhead) {
+        GSonUtils.decodeChangeSet(reader, resolver, accessor(globAccessor), lookAhead, this);
+        return this;
+    }
+
+    public GlobAccessor accessor(GlobAccessor globAccessor) {
+        return key -> {
+            Change change = changes.get(key);
+            if (change != null && change.state == State.CREATE) {
+                MutableGlob glob = key.getGlobType().instantiate();
+                key.asFieldValues().safeApply(glob::setValue);
+                change.values.forEach(glob::setValue);
+                return glob;
+            }
+            return globAccessor.get(key);
+        };
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    public ChangeSet getChangeSet() {
+        FixStateChangeSet changeSet = new DefaultFixStateChangeSet();
+        for (Change change : changes.values()) {
+            switch (change.state) {
+                case CREATE: {
+                    DeltaGlob deltaGlob = changeSet.getForCreate(change.key);
+                    change.values.forEach(deltaGlob::setValue);
+                    break;
+                }
+                case UPDATE: {
+                    DeltaGlob deltaGlob = changeSet.getForUpdate(change.key);
+                    change.values.forEach(deltaGlob::setValue);
+                    change.previousValues.forEach(deltaGlob::setPreviousValue);
+                    break;
+                }
+                case DELETE: {
+                    DeltaGlob deltaGlob = changeSet.getForDelete(change.key);
+                    change.previousValues.forEach(deltaGlob::setValue);
+                    break;
+                }
+            }
+        }
+        return changeSet;
+    }
+
+    public void visitCreation(Key key, FieldsValueScanner values) {
+        Change change = changes.get(key);
+        if (change == null) {
+            change = new Change(key, State.CREATE);
+            changes.put(key, change);
+            values.safeAccept(new Collector(change.values, false));
+        } else if (change.state == State.DELETE) {
+            // delete + create => update from the deleted values to the created ones
+            change.state = State.UPDATE;
+            values.safeAccept(new Collector(change.values, false));
+            for (Field field : change.previousValues.keySet()) {
+                change.values.putIfAbsent(field, null);
+            }
+        } else {
+            throw new RuntimeException("Creation of " + key + " already " + change.state);
+        }
+    }
+
+    public void visitUpdate(Key key, FieldsValueWithPreviousScanner values) {
+        Change change = changes.get(key);
+        if (change == null) {
+            change = new Change(key, State.UPDATE);
+            changes.put(key, change);
+            values.safeAccept(new Collector(change.values, false));
+            values.safeAcceptOnPrevious(new Collector(change.previousValues, false));
+        } else if (change.state == State.DELETE) {
+            throw new RuntimeException("Update of deleted " + key);
+        } else {
+            values.safeAccept(new Collector(change.values, false));
+            if (change.state == State.UPDATE) {
+                values.safeAcceptOnPrevious(new Collector(change.previousValues, true));
+            }
+        }
+    }
+
+    public void visitDeletion(Key key, FieldsValueScanner previousValues) {
+        Change change = changes.get(key);
+        if (change == null) {
+            change = new Change(key, State.DELETE);
+            changes.put(key, change);
+            previousValues.safeAccept(new Collector(change.previousValues, false));
+        } else if (change.state == State.CREATE) {
+            changes.remove(key);
+        } else if (change.state == State.UPDATE) {
+            // the previous values of the first update are older than the deleted ones.
+            change.state = State.DELETE;
+            change.values.clear();
+            previousValues.safeAccept(new Collector(change.previousValues, true));
+        } else {
+            throw new RuntimeException("Deletion of deleted " + key);
+        }
+    }
+
+    enum State {
+        CREATE, UPDATE, DELETE
+    }
+
+    static class Change {
+        final Key key;
+        State state;
+        final Map<Field, Object> values = new LinkedHashMap<>();
+        final Map<Field, Object> previousValues = new LinkedHashMap<>();
+
+        Change(Key key, State state) {
+            this.key = key;
+            this.state = state;
+        }
+    }
+
+    static class Collector extends AbstractFieldValueVisitor {
+        private final Map<Field, Object> values;
+        private final boolean keepFirst;
+
+        Collector(Map<Field, Object> values, boolean keepFirst) {
+            this.values = values;
+            this.keepFirst = keepFirst;
+        }
+
+        public void notManaged(Field field, Object value) {
+            if (field.isKeyField()) {
+                return;
+            }
+            if (keepFirst) {
+                values.putIfAbsent(field, value);
+            } else {
+                values.put(field, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.globsframework.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.model.*;
+import org.globsframework.model.delta.DeltaGlob;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/*
+Compact changeSet format : changes are grouped by type then by state, the kind and the state are written once
+and the key is written as the values of the key fields in the order of the type key fields.
+{
+  "dummyType": {
+    "create": [["XXXX", {"name": "d1"}]],
+    "update": [["YYYY", {"name": "d1"}, {"name": "d2"}]],
+    "delete": [["ZZZZ", {"name": "d3"}]]
+  }
+}
+The previous values (last element of update and delete) are optional.
+ */
+public class CompactChangeSetGson {
+    public static final String CREATE = "create";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private final GlobTypeResolver resolver;
+
+    public CompactChangeSetGson(GlobTypeResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public static void write(Writer writer, ChangeSet changeSet, boolean withPreviousValues) throws IOException {
+        CompactJsonWriter out = new CompactJsonWriter(writer);
+        write(out, changeSet, withPreviousValues);
+        out.flush();
+    }
+
+    public static void write(CompactJsonWriter out, ChangeSet changeSet, boolean withPreviousValues) throws IOException {
+        Set<GlobType> types = new LinkedHashSet<>();
+        changeSet.safeVisit(new ChangeSetVisitor() {
+            public void visitCreation(Key key, FieldsValueScanner values) {
+                types.add(key.getGlobType());
+            }
+
+            public void visitUpdate(Key key, FieldsValueWithPreviousScanner values) {
+                types.add(key.getGlobType());
+            }
+
+            public void visitDeletion(Key key, FieldsValueScanner previousValues) {
+                types.add(key.getGlobType());
+            }
+        });
+        JsonFieldValueVisitor functor = new ChangeValuesGsonAdapter.ChangeSetJsonFieldValueVisitor(out);
+        out.beginObject();
+        for (GlobType type : types) {
+            out.name(type.getName());
+            out.beginObject();
+            if (!changeSet.getCreated(type).isEmpty()) {
+                out.name(CREATE);
+                out.beginArray();
+                changeSet.safeVisit(type, new ChangeSetVisitor() {
+                    public void visitCreation(Key key, FieldsValueScanner values) throws Exception {
+                        writeKey(out, key, functor);
+                        writeValues(out, values, functor);
+                        out.endArray();
+                    }
+
+                    public void visitUpdate(Key key, FieldsValueWithPreviousScanner values) {
+                    }
+
+                    public void visitDeletion(Key key, FieldsValueScanner previousValues) {
+                    }
+                });
+                out.endArray();
+            }
+            if (!changeSet.getUpdated(type).isEmpty()) {
+                out.name(UPDATE);
+                out.beginArray();
+                changeSet.safeVisit(type, new ChangeSetVisitor() {
+                    public void visitCreation(Key key, FieldsValueScanner values) {
+                    }
+
+                    public void visitUpdate(Key key, FieldsValueWithPreviousScanner values) throws Exception {
+                        writeKey(out, key, functor);
+                        writeValues(out, values, functor);
+                        if (withPreviousValues) {
+                            out.beginObject();
+                            values.safeAcceptOnPrevious(functor.withoutKey());
+                            out.endObject();
+                        }
+                        out.endArray();
+                    }
+
+                    public void visitDeletion(Key key, FieldsValueScanner previousValues) {
+                    }
+                });
+                out.endArray();
+            }
+            if (!changeSet.getDeleted(type).isEmpty()) {
+                out.name(DELETE);
+                out.beginArray();
+                changeSet.safeVisit(type, new ChangeSetVisitor() {
+                    public void visitCreation(Key key, FieldsValueScanner values) {
+                    }
+
+                    public void visitUpdate(Key key, FieldsValueWithPreviousScanner values) {
+                    }
+
+                    public void visitDeletion(Key key, FieldsValueScanner previousValues) throws Exception {
+                        writeKey(out, key, functor);
+                        if (withPreviousValues) {
+                            writeValues(out, previousValues, functor);
+                        }
+                        out.endArray();
+                    }
+                });
+                out.endArray();
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    // open the change array and write the key values without their names.
+    private static void writeKey(CompactJsonWriter out, Key key, JsonFieldValueVisitor functor) throws IOException {
+        out.beginArray();
+        out.positional = true;
+        try {
+            key.safeAcceptOnKeyField(functor);
+        } finally {
+            out.positional = false;
+        }
+    }
+
+    private static void writeValues(CompactJsonWriter out, FieldsValueScanner values, JsonFieldValueVisitor functor) throws IOException {
+        out.beginObject();
+        values.safeAccept(functor.withoutKey());
+        out.endObject();
+    }
+
+    public PreChangeSet read(JsonReader in) throws IOException {
+        PreChangeSetGsonAdapter.Window window = new PreChangeSetGsonAdapter.Window(null, Integer.MAX_VALUE, null);
+        read(in, window);
+        return PreChangeSetGsonAdapter.preChangeSet(window.changeSet, window.jsonreader);
+    }
+
+    // see PreChangeSetGsonAdapter.read : changes are visited by window of lookAhead entries.
+    public long read(JsonReader in, GlobAccessor globAccessor, int lookAhead, ChangeSetVisitor visitor) throws IOException {
+        PreChangeSetGsonAdapter.Window window = new PreChangeSetGsonAdapter.Window(globAccessor, lookAhead, visitor);
+        read(in, window);
+        window.flush();
+        return window.count;
+    }
+
+    private void read(JsonReader in, PreChangeSetGsonAdapter.Window window) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            GlobType globType = resolver.get(in.nextName());
+            in.beginObject();
+            while (in.hasNext()) {
+                String state = in.nextName();
+                in.beginArray();
+                while (in.hasNext()) {
+                    readChange(in, globType, state, window);
+                    window.added();
+                }
+                in.endArray();
+            }
+            in.endObject();
+        }
+        in.endObject();
+    }
+
+    private void readChange(JsonReader in, GlobType globType, String state, PreChangeSetGsonAdapter.Window window) throws IOException {
+        PreChangeSetGsonAdapter.Jsonreader jsonreader = window.jsonreader;
+        in.beginArray();
+        KeyBuilder keyBuilder = KeyBuilder.create(globType);
+        for (Field keyField : globType.getKeyFields()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else {
+                keyField.safeVisit(jsonreader, keyBuilder, in);
+            }
+        }
+        DeltaGlob deltaGlob = PreChangeSetGsonAdapter.getDeltaGlob(window.changeSet, state, keyBuilder.get());
+        switch (state) {
+            case CREATE:
+                PreChangeSetGsonAdapter.readValues(in, globType, deltaGlob::setValue, jsonreader);
+                break;
+            case UPDATE:
+                PreChangeSetGsonAdapter.readValues(in, globType, deltaGlob::setValue, jsonreader);
+                if (in.hasNext()) {
+                    PreChangeSetGsonAdapter.readValues(in, globType, deltaGlob::setPreviousValue, jsonreader);
+                }
+                break;
+            case DELETE:
+                if (in.hasNext()) {
+                    PreChangeSetGsonAdapter.readValues(in, globType, deltaGlob::setValue, jsonreader);
+                }
+                break;
+        }
+        in.endArray();
+    }
+
+    // names are not written while the key values are written.
+    public static class CompactJsonWriter extends JsonWriter {
+        private boolean positional;
+
+        public CompactJsonWriter(Writer out) {
+            super(out);
+        }
+
+        public JsonWriter name(String name) throws IOException {
+            return positional ? this : super.name(name);
+        }
+    }
+}
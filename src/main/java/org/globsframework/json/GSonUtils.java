@@ -1,14 +1,21 @@
 package org.globsframework.json;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.internal.bind.JsonTreeReader;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import org.globsframework.json.annottations.JsonDateFormatType;
+import org.globsframework.json.jfr.*;
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.fields.DateField;
 import org.globsframework.metamodel.fields.DateTimeField;
+import org.globsframework.model.ChangeSet;
+import org.globsframework.model.ChangeSetVisitor;
 import org.globsframework.model.Glob;
 import org.globsframework.model.Key;
 
@@ -16,9 +23,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
@@ -26,22 +31,39 @@ public class GSonUtils {
 
     public static Map<String, DateTimeFormatter> CACHE_DATE = new ConcurrentHashMap<>();
     public static Map<String, DateTimeFormatter> CACHE_DATE_TIME = new ConcurrentHashMap<>();
+    // the encoded schema is kept as long as the GlobType is reachable, the encoder only write : it is shared.
+    private static final Map<GlobType, String> SCHEMA_CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final GlobTypeSetAdapter SCHEMA_ENCODER = new GlobTypeSetAdapter(false, name -> null, false);
 
     public static Glob decode(String json, GlobType globType) {
         return decode(new NoLockStringReader(json), globType);
     }
 
     public static Glob decode(Reader reader, GlobType globType) {
+        return decode(reader, globType, null);
+    }
+
+    // the JsonAsObject glob arrays are indexed by their JsonValueAsField field while read.
+    public static Glob decode(Reader reader, GlobType globType, GlobArrayIndexes indexes) {
+        DecodeEvent event = new DecodeEvent();
+        CountingReader countingReader = event.isEnabled() ? new CountingReader(reader) : null;
+        event.begin();
         Glob glob = null;
         try {
-            JsonReader in = new JsonReader(reader);
+            JsonReader in = new JsonReader(countingReader != null ? countingReader : reader);
             in.beginObject();
-            glob = GlobGSonDeserializer.readFields(in, globType);
+            if (indexes == null) {
+                glob = GlobGSonDeserializer.readFields(in, globType);
+            } else {
+                glob = GlobGSonDeserializer.readFields(in, globType, new ReadJsonWithReaderFieldVisitor(indexes));
+            }
             in.endObject();
+            return glob;
         } catch (IOException e) {
             throw new RuntimeException("Fail to convert to Glob", e);
+        } finally {
+            event.end(globType.getName(), glob != null ? 1 : 0, length(countingReader));
         }
-        return glob;
     }
 
     public static Glob[] decodeArray(String str, GlobType globType) {
@@ -59,9 +81,12 @@ public class GSonUtils {
     }
 
     public static long decodeArray(Reader reader, GlobType globType, Consumer<Glob> consumer) {
+        DecodeEvent event = new DecodeEvent();
+        CountingReader countingReader = event.isEnabled() ? new CountingReader(reader) : null;
+        event.begin();
         long count = 0;
         try {
-            JsonReader in = new JsonReader(reader);
+            JsonReader in = new JsonReader(countingReader != null ? countingReader : reader);
             in.beginArray();
             while (in.peek() != JsonToken.END_ARRAY) {
                 in.beginObject();
@@ -70,10 +95,74 @@ public class GSonUtils {
                 count++;
                 in.endObject();
             }
+            return count;
         } catch (IOException e) {
             throw new RuntimeException("Fail to convert to Glob", e);
+        } finally {
+            event.end(globType.getName(), count, length(countingReader));
+        }
+    }
+
+    // changes are visited while the json is read, lookAhead is the number of changes kept to resolve glob references.
+    public static long decodeChangeSet(Reader reader, GlobTypeResolver resolver, GlobAccessor globAccessor, int lookAhead, ChangeSetVisitor visitor) {
+        DecodeEvent event = new DecodeEvent();
+        CountingReader countingReader = event.isEnabled() ? new CountingReader(reader) : null;
+        event.begin();
+        long count = 0;
+        try {
+            JsonReader in = new JsonReader(countingReader != null ? countingReader : reader);
+            count = new PreChangeSetGsonAdapter(resolver).read(in, globAccessor, lookAhead, visitor);
+            return count;
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read changeSet", e);
+        } finally {
+            event.end(null, count, length(countingReader));
+        }
+    }
+
+    public static String encodeCompact(ChangeSet changeSet, boolean withPreviousValues) {
+        EncodeEvent event = new EncodeEvent();
+        event.begin();
+        StringBuilder stringBuilder = new StringBuilder();
+        try {
+            CompactChangeSetGson.write(new StringWriterToBuilder(stringBuilder), changeSet, withPreviousValues);
+            return stringBuilder.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            event.end(null, changeSet.size(), stringBuilder.length());
+        }
+    }
+
+    public static PreChangeSet decodeCompactChangeSet(Reader reader, GlobTypeResolver resolver) {
+        DecodeEvent event = new DecodeEvent();
+        CountingReader countingReader = event.isEnabled() ? new CountingReader(reader) : null;
+        event.begin();
+        PreChangeSet preChangeSet = null;
+        try {
+            preChangeSet = new CompactChangeSetGson(resolver).read(new JsonReader(countingReader != null ? countingReader : reader));
+            return preChangeSet;
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read changeSet", e);
+        } finally {
+            event.end(null, preChangeSet != null ? 1 : 0, length(countingReader));
+        }
+    }
+
+    public static long decodeCompactChangeSet(Reader reader, GlobTypeResolver resolver, GlobAccessor globAccessor, int lookAhead, ChangeSetVisitor visitor) {
+        DecodeEvent event = new DecodeEvent();
+        CountingReader countingReader = event.isEnabled() ? new CountingReader(reader) : null;
+        event.begin();
+        long count = 0;
+        try {
+            JsonReader in = new JsonReader(countingReader != null ? countingReader : reader);
+            count = new CompactChangeSetGson(resolver).read(in, globAccessor, lookAhead, visitor);
+            return count;
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read changeSet", e);
+        } finally {
+            event.end(null, count, length(countingReader));
         }
-        return count;
     }
 
     public static String encode(Glob glob, boolean withKind) {
@@ -101,15 +190,70 @@ public class GSonUtils {
         if (globType == null) {
             return null;
         }
-        GlobTypeSet globTypeSet = GlobTypeSet.export(globType);
-        Gson gson = GlobsGson.create(name -> null);
-        return gson.toJson(globTypeSet);
+        String json = SCHEMA_CACHE.get(globType);
+        if (json != null) {
+            return json;
+        }
+        SchemaEncodeEvent event = new SchemaEncodeEvent();
+        event.begin();
+        GlobTypeSet globTypeSet = null;
+        StringBuilder stringBuilder = new StringBuilder();
+        try {
+            globTypeSet = GlobTypeSet.export(globType);
+            JsonWriter jsonWriter = new JsonWriter(new StringWriterToBuilder(stringBuilder));
+            // same output as Gson.toJson
+            jsonWriter.setLenient(true);
+            jsonWriter.setHtmlSafe(true);
+            jsonWriter.setSerializeNulls(false);
+            SCHEMA_ENCODER.write(jsonWriter, globTypeSet);
+            json = stringBuilder.toString();
+            SCHEMA_CACHE.put(globType, json);
+            return json;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            event.end(globType.getName(), globTypeSet != null ? globTypeSet.globType.length : 0, stringBuilder.length());
+        }
+    }
+
+    public static void clearSchemaCache() {
+        SCHEMA_CACHE.clear();
     }
 
     public static GlobType decodeGlobType(String json, GlobTypeResolver resolver, boolean ignore) {
-        Gson gson = GlobsGson.createBuilder(resolver, ignore).create();
-        GlobTypeSet globTypeSet = gson.fromJson(json, GlobTypeSet.class);
-        return globTypeSet.globType[0];
+        return decodeGlobType(json, resolver, ignore, null);
+    }
+
+    public static GlobType decodeGlobType(String json, GlobTypeResolver resolver, boolean ignore, GlobTypeInterner interner) {
+        SchemaDecodeEvent event = new SchemaDecodeEvent();
+        event.begin();
+        GlobTypeSet globTypeSet = null;
+        try {
+            globTypeSet = new GlobTypeSetAdapter(false, resolver, ignore, null, interner).fromJson(json);
+            return globTypeSet.globType[0];
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read schema", e);
+        } finally {
+            event.end(globTypeSet != null ? globTypeSet.globType[0].getName() : null,
+                    globTypeSet != null ? globTypeSet.globType.length : 0, json.length());
+        }
+    }
+
+    /*
+    For a resolver that read one type by call and is asked for the types referenced while reading (see LoadingGlobTypeResolver) :
+    typesInProgress is kept by the resolver for all its reads (under its lock), the resolver return the type found in it first.
+    It contains the unCompleteType of the types being read : two types that reference each other are read by two nested calls.
+     */
+    public static GlobType decodeGlobType(Reader reader, GlobTypeResolver resolver, boolean ignore, Map<String, GlobType> typesInProgress) {
+        try {
+            return new GlobTypeArrayGsonAdapter(false, resolver, ignore, typesInProgress).fromJson(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read schema", e);
+        }
+    }
+
+    public static GlobType decodeGlobType(JsonElement json, GlobTypeResolver resolver, boolean ignore, Map<String, GlobType> typesInProgress) {
+        return new GlobTypeArrayGsonAdapter(false, resolver, ignore, typesInProgress).fromJsonTree(json);
     }
 
     public static void encode(Writer out, Glob glob, boolean withKind) {
@@ -126,8 +270,12 @@ public class GSonUtils {
     }
 
     public static void encode(Writer out, Glob glob, boolean withKind, boolean nice) {
+        EncodeEvent event = new EncodeEvent();
+        CountingWriter countingWriter = event.isEnabled() ? new CountingWriter(out) : null;
+        event.begin();
         try {
-            JsonWriter jsonWriter = new JsonWriter(out);
+            Writer writer = countingWriter != null ? countingWriter : out;
+            JsonWriter jsonWriter = new JsonWriter(writer);
             if (nice) {
                 jsonWriter.setIndent(" ");
             }
@@ -135,11 +283,13 @@ public class GSonUtils {
             if (withKind) {
                 jsonWriter.name(GlobsGson.KIND_NAME).value(glob.getType().getName());
             }
-            JsonFieldValueVisitor jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter);
+            JsonFieldValueVisitor jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter, writer);
             glob.safeAccept(jsonFieldValueVisitor);
             jsonWriter.endObject();
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            event.end(glob.getType().getName(), 1, countingWriter != null ? countingWriter.getCount() : -1);
         }
     }
 
@@ -153,7 +303,7 @@ public class GSonUtils {
             if (withKind) {
                 jsonWriter.name(GlobsGson.KIND_NAME).value(key.getGlobType().getName());
             }
-            JsonFieldValueVisitor jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter);
+            JsonFieldValueVisitor jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter, out);
             key.safeAcceptOnKeyField(jsonFieldValueVisitor);
             jsonWriter.endObject();
         } catch (IOException e) {
@@ -161,6 +311,10 @@ public class GSonUtils {
         }
     }
 
+    private static long length(CountingReader countingReader) {
+        return countingReader != null ? countingReader.getCount() : -1;
+    }
+
     public static DateTimeFormatter getCachedDateFormatter(DateField field) {
         DateTimeFormatter dateConverter;
         if (field.hasAnnotation(JsonDateFormatType.UNIQUE_KEY)) {
@@ -196,11 +350,13 @@ public class GSonUtils {
     }
 
     public static String encode(Glob[] glob, boolean withKind) {
+        EncodeEvent event = new EncodeEvent();
+        event.begin();
+        StringBuilder stringBuilder = new StringBuilder();
         try {
-            StringBuilder stringBuilder = new StringBuilder();
             StringWriterToBuilder out = new StringWriterToBuilder(stringBuilder);
             JsonWriter jsonWriter = new JsonWriter(out);
-            JsonFieldValueVisitor jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter);
+            JsonFieldValueVisitor jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter, out);
             jsonWriter.beginArray();
             for (Glob v : glob) {
                 jsonWriter.beginObject();
@@ -214,9 +370,72 @@ public class GSonUtils {
             return stringBuilder.toString();
         } catch (IOException e) {
             throw new RuntimeException("In encode", e);
+        } finally {
+            event.end(glob.length != 0 ? glob[0].getType().getName() : null, glob.length, stringBuilder.length());
         }
     }
 
+    // same content as encode(glob, withKind) but without text in between.
+    public static JsonObject toJsonTree(Glob glob, boolean withKind) {
+        return new JsonTreeFieldValueVisitor().write(glob, withKind);
+    }
+
+    public static JsonArray toJsonTree(Glob[] globs, boolean withKind) {
+        JsonTreeFieldValueVisitor visitor = new JsonTreeFieldValueVisitor();
+        JsonArray array = new JsonArray(globs.length);
+        for (Glob glob : globs) {
+            array.add(visitor.write(glob, withKind));
+        }
+        return array;
+    }
+
+    public static Glob fromJsonTree(JsonElement json, GlobType globType) {
+        if (json == null || json.isJsonNull()) {
+            return null;
+        }
+        return readTree(json, globType, null);
+    }
+
+    public static Glob fromJsonTree(JsonElement json, GlobTypeResolver resolver) {
+        if (json == null || json.isJsonNull()) {
+            return null;
+        }
+        return readTree(json, null, resolver);
+    }
+
+    // the tree is read through a JsonReader with the visitor of decode : same rules (date formats, JsonAsObject, IsJsonContent).
+    private static Glob readTree(JsonElement json, GlobType globType, GlobTypeResolver resolver) {
+        try {
+            JsonReader in = new JsonTreeReader(json);
+            if (globType == null) {
+                return GlobGSonDeserializer.read(in, resolver);
+            }
+            in.beginObject();
+            Glob glob = GlobGSonDeserializer.readFields(in, globType);
+            in.endObject();
+            return glob;
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to convert to Glob", e);
+        }
+    }
+
+    // Map/List view of the glob with the json rules, without text in between.
+    public static Map<String, Object> toMap(Glob glob, boolean withKind) {
+        return new MapFieldValueVisitor().write(glob, withKind);
+    }
+
+    public static List<Map<String, Object>> toList(Glob[] globs, boolean withKind) {
+        return new MapFieldValueVisitor().write(globs, withKind);
+    }
+
+    public static Glob fromMap(Map<String, ?> values, GlobType globType) {
+        return values == null ? null : ReadMapFieldVisitor.readGlob(values, globType);
+    }
+
+    public static Glob fromMap(Map<String, ?> values, GlobTypeResolver resolver) {
+        return values == null ? null : ReadMapFieldVisitor.readGlob(values, resolver);
+    }
+
     public static String normalize(String json) {
         Gson gson = new Gson();
         return gson.toJson(JsonParser.parseReader(new NoLockStringReader(json)));
@@ -226,13 +445,16 @@ public class GSonUtils {
         private final Writer writer;
         private final JsonFieldValueVisitor jsonFieldValueVisitor;
         private final JsonWriter jsonWriter;
+        private final CountingWriter countingWriter;
         private boolean withKind;
 
+        // always counted : a recording can start after the WriteGlob is created.
         public WriteGlob(Writer writer, boolean withKind) {
             this.writer = writer;
-            jsonWriter = new JsonWriter(writer);
+            countingWriter = new CountingWriter(writer);
+            jsonWriter = new JsonWriter(countingWriter);
             this.withKind = withKind;
-            jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter);
+            jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter, countingWriter);
             try {
                 jsonWriter.beginArray();
             } catch (IOException e) {
@@ -241,6 +463,9 @@ public class GSonUtils {
         }
 
         public void push(Glob glob) {
+            EncodeEvent event = new EncodeEvent();
+            long start = countingWriter.getCount();
+            event.begin();
             try {
                 jsonWriter.beginObject();
                 if (withKind) {
@@ -250,6 +475,8 @@ public class GSonUtils {
                 jsonWriter.endObject();
             } catch (IOException e) {
                 throw new RuntimeException(e);
+            } finally {
+                event.end(glob.getType().getName(), 1, countingWriter.getCount() - start);
             }
         }
 
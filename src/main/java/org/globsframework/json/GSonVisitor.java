@@ -13,7 +13,6 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Base64;
 import java.util.Collection;
 
 public abstract class GSonVisitor implements FieldVisitorWithTwoContext<JsonElement, FieldSetter> {
@@ -142,7 +141,7 @@ public abstract class GSonVisitor implements FieldVisitorWithTwoContext<JsonElem
 
    public void visitBlob(BlobField blobField, JsonElement element, FieldSetter fieldSetter) {
        fieldSetter.set(blobField,
-               Base64.getDecoder().decode(element.getAsString()));
+               Base64Chunks.decode(element.getAsString()));
    }
 
    public void visitGlob(GlobField field, JsonElement element, FieldSetter fieldSetter) throws Exception {
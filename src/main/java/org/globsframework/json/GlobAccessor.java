@@ -3,6 +3,19 @@ package org.globsframework.json;
 import org.globsframework.model.Glob;
 import org.globsframework.model.Key;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public interface GlobAccessor {
     Glob get(Key key);
+
+    // override to fetch the keys in one round-trip (the keys are distinct)
+    default Map<Key, Glob> getAll(Collection<Key> keys) {
+        Map<Key, Glob> globs = new HashMap<>(keys.size());
+        for (Key key : keys) {
+            globs.put(key, get(key));
+        }
+        return globs;
+    }
 }
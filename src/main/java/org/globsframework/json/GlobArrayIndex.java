@@ -0,0 +1,117 @@
+package org.globsframework.json;
+
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.fields.IntegerField;
+import org.globsframework.metamodel.fields.LongField;
+import org.globsframework.model.Glob;
+
+/*
+Index of a JsonAsObject glob array by its JsonValueAsField field (String, int or long).
+Open addressing with linear probing, the table is sized once for the globs (load factor <= 0.5).
+For a key present twice the last glob is kept (as a json object with the same name twice).
+Read only after creation : can be shared between threads.
+ */
+public class GlobArrayIndex {
+    private final Field keyField;
+    private final boolean numeric;
+    private final String[] stringKeys;
+    private final long[] numericKeys;
+    private final Glob[] values;
+    private final int mask;
+    private int size;
+
+    public GlobArrayIndex(Field keyField, Glob[] globs) {
+        this.keyField = keyField;
+        this.numeric = keyField instanceof IntegerField || keyField instanceof LongField;
+        int capacity = Integer.highestOneBit(Math.max(globs.length, 1) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.values = new Glob[capacity];
+        this.stringKeys = numeric ? null : new String[capacity];
+        this.numericKeys = numeric ? new long[capacity] : null;
+        for (Glob glob : globs) {
+            Object key = glob.getValue(keyField);
+            if (key == null) {
+                throw new RuntimeException("Value can not be null for a JsonValueAsField field " + keyField.getFullName());
+            }
+            if (numeric) {
+                put(((Number) key).longValue(), glob);
+            } else {
+                put(key.toString(), glob);
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(long key) {
+        return spread((int) (key ^ (key >>> 32)));
+    }
+
+    private void put(String key, Glob glob) {
+        int i = spread(key.hashCode()) & mask;
+        while (values[i] != null) {
+            if (stringKeys[i].equals(key)) {
+                values[i] = glob;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        stringKeys[i] = key;
+        values[i] = glob;
+        size++;
+    }
+
+    private void put(long key, Glob glob) {
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            if (numericKeys[i] == key) {
+                values[i] = glob;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        numericKeys[i] = key;
+        values[i] = glob;
+        size++;
+    }
+
+    public Field getKeyField() {
+        return keyField;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Glob get(String key) {
+        if (numeric) {
+            return get(Long.parseLong(key));
+        }
+        int i = spread(key.hashCode()) & mask;
+        Glob glob;
+        while ((glob = values[i]) != null) {
+            if (stringKeys[i].equals(key)) {
+                return glob;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public Glob get(long key) {
+        if (!numeric) {
+            return get(Long.toString(key));
+        }
+        int i = hash(key) & mask;
+        Glob glob;
+        while ((glob = values[i]) != null) {
+            if (numericKeys[i] == key) {
+                return glob;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+}
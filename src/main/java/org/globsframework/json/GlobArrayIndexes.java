@@ -0,0 +1,27 @@
+package org.globsframework.json;
+
+import org.globsframework.model.Glob;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+The indexes built while decoding the JsonAsObject glob arrays, by array instance :
+indexes.get(glob.get(field)) give the index of the value of field.
+One per decode, not thread safe while the decode is in progress.
+ */
+public class GlobArrayIndexes {
+    private final Map<Glob[], GlobArrayIndex> indexes = new IdentityHashMap<>();
+
+    void add(Glob[] globs, GlobArrayIndex index) {
+        indexes.put(globs, index);
+    }
+
+    public GlobArrayIndex get(Glob[] globs) {
+        return indexes.get(globs);
+    }
+
+    public int size() {
+        return indexes.size();
+    }
+}
@@ -12,8 +12,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 public class GlobGSonDeserializer {
@@ -38,8 +36,7 @@ public class GlobGSonDeserializer {
             JsonObject jsonObject = (JsonObject) json;
             String type = jsonObject.get(GlobsGson.KIND_NAME).getAsString();
             if (type.equals(UnknownAnnotation.TYPE.getName())) {
-                MutableGlob mutableGlob = readGlob(jsonObject, UnknownAnnotation.TYPE);
-                return deserialize(JsonParser.parseReader(new StringReader(mutableGlob.get(UnknownAnnotation.CONTENT))), globTypeResolver, ignoreUnknownAnnotation);
+                return resolve(readGlob(jsonObject, UnknownAnnotation.TYPE), globTypeResolver, ignoreUnknownAnnotation);
             }
             GlobType globType = ignoreUnknownAnnotation ? globTypeResolver.find(type) : globTypeResolver.get(type);
             if (globType == null) {
@@ -56,6 +53,60 @@ public class GlobGSonDeserializer {
         return instantiate;
     }
 
+    // json is the annotation (with its kind) : it is parsed only if its type is known else it is kept as is in an UnknownAnnotation.
+    public static Glob deserialize(String kind, String json, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation) {
+        try {
+            if (kind.equals(UnknownAnnotation.TYPE.getName())) {
+                JsonReader in = new JsonReader(new StringReader(json));
+                in.beginObject();
+                return resolve(readFields(in, UnknownAnnotation.TYPE), globTypeResolver, ignoreUnknownAnnotation);
+            }
+            GlobType globType = ignoreUnknownAnnotation ? globTypeResolver.find(kind) : globTypeResolver.get(kind);
+            if (globType == null) {
+                LOGGER.debug("Unknown annotation " + kind);
+                return UnknownAnnotation.TYPE.instantiate()
+                        .set(UnknownAnnotation.uuid, UUID.randomUUID().toString())
+                        .set(UnknownAnnotation.CONTENT, json);
+            }
+            JsonReader in = new JsonReader(new StringReader(json));
+            in.beginObject();
+            Glob glob = readFields(in, globType);
+            in.endObject();
+            return glob;
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to parse : " + json, e);
+        }
+    }
+
+    // the annotation of an UnknownAnnotation if its type is now known (the content is parsed only in that case).
+    public static Glob resolve(Glob unknownAnnotation, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation) {
+        String content = unknownAnnotation.get(UnknownAnnotation.CONTENT);
+        try {
+            String kind = readKind(new JsonReader(new StringReader(content)));
+            if (kind == null) {
+                throw new RuntimeException(GlobsGson.KIND_NAME + " not found in " + content);
+            }
+            GlobType globType = ignoreUnknownAnnotation ? globTypeResolver.find(kind) : globTypeResolver.get(kind);
+            if (globType == null) {
+                return unknownAnnotation;
+            }
+            return read(new JsonReader(new StringReader(content)), globTypeResolver);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to parse : " + content, e);
+        }
+    }
+
+    private static String readKind(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals(GlobsGson.KIND_NAME)) {
+                return in.nextString();
+            }
+            in.skipValue();
+        }
+        return null;
+    }
+
     public static MutableGlob readGlob(JsonObject jsonObject, GlobType globType) {
         MutableGlob instantiate;
         instantiate = globType.instantiate();
@@ -69,12 +120,20 @@ public class GlobGSonDeserializer {
     }
 
     public static Glob readFields(JsonReader in, GlobType globType) throws IOException {
+        return readFields(in, globType, fieldVisitor);
+    }
+
+    public static Glob readFields(JsonReader in, GlobType globType, ReadJsonWithReaderFieldVisitor fieldVisitor) throws IOException {
         MutableGlob instantiate = globType.instantiate();
-        read(in, globType, instantiate);
+        read(in, globType, instantiate, fieldVisitor);
         return instantiate;
     }
 
     public static void read(JsonReader in, GlobType globType, FieldSetter instantiate) throws IOException {
+        read(in, globType, instantiate, fieldVisitor);
+    }
+
+    public static void read(JsonReader in, GlobType globType, FieldSetter instantiate, ReadJsonWithReaderFieldVisitor fieldVisitor) throws IOException {
         while (in.hasNext() && in.peek() == JsonToken.NAME) {
             String name = in.nextName();
             Field field = globType.findField(name);
@@ -132,46 +191,24 @@ public class GlobGSonDeserializer {
     }
 
     private static Glob readFieldByField(JsonReader in, String name, GlobTypeResolver resolver) throws IOException {
-        Map<String, JsonElement> values = new HashMap<>();
-        values.put(name, JsonParser.parseReader(in));
-        while (in.peek() != JsonToken.END_OBJECT) {
-            values.put(in.nextName(), JsonParser.parseReader(in));
+        JsonTape tape = JsonTape.readObjectEnd(in, name);
+        if (tape.getKind() == null) {
+            throw new RuntimeException("kind not found in object starting with " + name);
         }
-        in.endObject();
-        JsonElement kindElement = values.get(GlobsGson.KIND_NAME);
-        if (kindElement == null) {
-            throw new RuntimeException("kind not found in " + values);
-        }
-        GlobType type = resolver.get(kindElement.getAsString());
+        GlobType type = resolver.get(tape.getKind());
         MutableGlob instantiate = type.instantiate();
-        for (Map.Entry<String, JsonElement> stringJsonElementEntry : values.entrySet()) {
-            Field field = type.findField(stringJsonElementEntry.getKey());
-            if (field != null) {
-                field.safeVisit(G_SON_VISITOR, stringJsonElementEntry.getValue(), instantiate);
-            }
-        }
+        read(tape.reader(), type, instantiate);
         return instantiate;
     }
 
     private static Key readKeyFieldByField(JsonReader in, String name, GlobTypeResolver resolver) throws IOException {
-        Map<String, JsonElement> values = new HashMap<>();
-        values.put(name, JsonParser.parseReader(in));
-        while (in.peek() != JsonToken.END_OBJECT) {
-            values.put(in.nextName(), JsonParser.parseReader(in));
+        JsonTape tape = JsonTape.readObjectEnd(in, name);
+        if (tape.getKind() == null) {
+            throw new RuntimeException("kind not found in object starting with " + name);
         }
-        in.endObject();
-        JsonElement kindElement = values.get(GlobsGson.KIND_NAME);
-        if (kindElement == null) {
-            throw new RuntimeException("kind not found in " + values);
-        }
-        GlobType type = resolver.get(kindElement.getAsString());
+        GlobType type = resolver.get(tape.getKind());
         KeyBuilder instantiate = KeyBuilder.init(type);
-        for (Map.Entry<String, JsonElement> stringJsonElementEntry : values.entrySet()) {
-            Field field = type.findField(stringJsonElementEntry.getKey());
-            if (field != null) {
-                field.safeVisit(G_SON_VISITOR, stringJsonElementEntry.getValue(), instantiate);
-            }
-        }
+        read(tape.reader(), type, instantiate);
         return instantiate.get();
     }
 
@@ -0,0 +1,238 @@
+package org.globsframework.json;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.model.Glob;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+
+/*
+List, Collection and arrays of Glob : one JsonFieldValueVisitor for all the globs and the last kind is not resolved again.
+GlobsGson.createBuilder register one without envelope (each glob with its _kind).
+The envelope is an opt-in : register new GlobListTypeAdapterFactory(resolver, true) on the builder after createBuilder
+(the last registered factory is used first). A list of globs of the same type is then written
+{"_kind":"<type>","_values":[{...}, {...}]} (the kind once), other lists as without envelope.
+The read accept the two formats whatever the option, a reader without envelope can read a writer with it.
+A raw collection (gson.toJson(list)) is written here only if it is not empty and contains only globs (no null),
+it is read by gson (a raw collection of globs can not be read back as globs, use a List<Glob> type).
+ */
+public class GlobListTypeAdapterFactory implements TypeAdapterFactory {
+    public static final String VALUES = "_values";
+    private final GlobTypeResolver resolver;
+    private final boolean envelope;
+
+    public GlobListTypeAdapterFactory(GlobTypeResolver resolver, boolean envelope) {
+        this.resolver = resolver;
+        this.envelope = envelope;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+        Class<? super T> rawType = typeToken.getRawType();
+        if (rawType.isArray()) {
+            Class<?> componentType = rawType.getComponentType();
+            if (Glob.class.isAssignableFrom(componentType)) {
+                return (TypeAdapter<T>) new GlobArrayAdapter(componentType);
+            }
+            return null;
+        }
+        if (rawType != List.class && rawType != Collection.class && rawType != ArrayList.class) {
+            return null;
+        }
+        Type type = typeToken.getType();
+        if (type instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (elementType instanceof Class && Glob.class.isAssignableFrom((Class<?>) elementType)) {
+                return (TypeAdapter<T>) new GlobListAdapter(null);
+            }
+            return null;
+        }
+        return (TypeAdapter<T>) new GlobListAdapter((TypeAdapter<Collection<?>>) (TypeAdapter<?>) gson.getDelegateAdapter(this, typeToken));
+    }
+
+    private void write(JsonWriter out, Collection<? extends Glob> globs) throws IOException {
+        GlobType globType = envelope ? sameType(globs) : null;
+        JsonFieldValueVisitor visitor = new JsonFieldValueVisitor(out);
+        if (globType != null) {
+            out.beginObject();
+            out.name(GlobsGson.KIND_NAME).value(globType.getName());
+            out.name(VALUES);
+            out.beginArray();
+            for (Glob glob : globs) {
+                out.beginObject();
+                glob.safeAccept(visitor);
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+            return;
+        }
+        out.beginArray();
+        for (Glob glob : globs) {
+            if (glob == null) {
+                out.nullValue();
+            } else {
+                out.beginObject();
+                out.name(GlobsGson.KIND_NAME).value(glob.getType().getName());
+                glob.safeAccept(visitor);
+                out.endObject();
+            }
+        }
+        out.endArray();
+    }
+
+    private static GlobType sameType(Collection<? extends Glob> globs) {
+        GlobType globType = null;
+        for (Glob glob : globs) {
+            if (glob == null || (globType != null && glob.getType() != globType)) {
+                return null;
+            }
+            globType = glob.getType();
+        }
+        return globType;
+    }
+
+    private List<Glob> read(JsonReader in) throws IOException {
+        List<Glob> globs = new ArrayList<>();
+        if (in.peek() == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            GlobType globType = null;
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals(GlobsGson.KIND_NAME)) {
+                    globType = resolver.get(in.nextString());
+                } else if (name.equals(VALUES)) {
+                    if (globType == null) {
+                        throw new RuntimeException(GlobsGson.KIND_NAME + " expected before " + VALUES);
+                    }
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        in.beginObject();
+                        globs.add(GlobGSonDeserializer.readFields(in, globType));
+                        in.endObject();
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return globs;
+        }
+        LastKindResolver lastKindResolver = new LastKindResolver(resolver);
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                globs.add(null);
+            } else {
+                globs.add(GlobGSonDeserializer.read(in, lastKindResolver));
+            }
+        }
+        in.endArray();
+        return globs;
+    }
+
+    // the globs of a list are mostly of the same type.
+    static class LastKindResolver implements GlobTypeResolver {
+        private final GlobTypeResolver resolver;
+        private String lastKind;
+        private GlobType lastType;
+
+        LastKindResolver(GlobTypeResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        public GlobType find(String name) {
+            if (name.equals(lastKind)) {
+                return lastType;
+            }
+            GlobType globType = resolver.find(name);
+            if (globType != null) {
+                lastKind = name;
+                lastType = globType;
+            }
+            return globType;
+        }
+    }
+
+    class GlobListAdapter extends TypeAdapter<Collection<?>> {
+        private final TypeAdapter<Collection<?>> delegate;
+
+        // delegate is not null for a raw collection : used if it is empty or contains something else than globs.
+        GlobListAdapter(TypeAdapter<Collection<?>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, Collection<?> value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            if (delegate != null) {
+                if (value.isEmpty()) {
+                    delegate.write(out, value);
+                    return;
+                }
+                for (Object o : value) {
+                    if (!(o instanceof Glob)) {
+                        delegate.write(out, value);
+                        return;
+                    }
+                }
+            }
+            GlobListTypeAdapterFactory.this.write(out, (Collection<? extends Glob>) value);
+        }
+
+        public Collection<?> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (delegate != null) {
+                return delegate.read(in);
+            }
+            return GlobListTypeAdapterFactory.this.read(in);
+        }
+    }
+
+    class GlobArrayAdapter extends TypeAdapter<Object> {
+        private final Class<?> componentType;
+
+        GlobArrayAdapter(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        public void write(JsonWriter out, Object value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            GlobListTypeAdapterFactory.this.write(out, Arrays.asList((Glob[]) value));
+        }
+
+        public Object read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            List<Glob> globs = GlobListTypeAdapterFactory.this.read(in);
+            Object array = Array.newInstance(componentType, globs.size());
+            for (int i = 0; i < globs.size(); i++) {
+                Array.set(array, i, globs.get(i));
+            }
+            return array;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.globsframework.json;
 
-import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
@@ -15,21 +14,29 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 class GlobTypeArrayGsonAdapter extends TypeAdapter<GlobType> {
     private final boolean forceSort;
-    private GlobTypeResolver globTypeResolver;
-    private GlobTypeGsonDeserializer globTypeGsonDeserializer;
-    private boolean ignoreUnknownAnnotation;
+    private final GlobTypeResolver globTypeResolver;
+    private final boolean ignoreUnknownAnnotation;
+    private final Map<String, GlobType> typesInProgress;
+    private final FieldTypeWriter fieldTypeWriter = new FieldTypeWriter();
 
     public GlobTypeArrayGsonAdapter(boolean forceSort, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation) {
+        this(forceSort, globTypeResolver, ignoreUnknownAnnotation, null);
+    }
+
+    // typesInProgress is shared by the reads of a resolver that read one type by call (see GlobTypeStreamReader), null for independent reads.
+    public GlobTypeArrayGsonAdapter(boolean forceSort, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation,
+                                    Map<String, GlobType> typesInProgress) {
         this.forceSort = forceSort;
         this.globTypeResolver = globTypeResolver;
-        this.globTypeGsonDeserializer = new GlobTypeGsonDeserializer(new GlobGSonDeserializer(), globTypeResolver, ignoreUnknownAnnotation);
         this.ignoreUnknownAnnotation = ignoreUnknownAnnotation;
+        this.typesInProgress = typesInProgress;
     }
 
     public void write(JsonWriter out, GlobType type) throws IOException {
@@ -44,97 +51,7 @@ class GlobTypeArrayGsonAdapter extends TypeAdapter<GlobType> {
             out.name(GlobsGson.FIELDS)
                     .beginArray();
             for (Field field : type.getFields()) {
-                field.safeVisit(new FieldVisitor() {
-
-                    public void visitInteger(IntegerField field) throws Exception {
-                        writeField(field, GlobsGson.INT_TYPE, out);
-                    }
-
-                    public void visitIntegerArray(IntegerArrayField field) throws Exception {
-                        writeField(field, GlobsGson.INT_ARRAY_TYPE, out);
-                    }
-
-                    public void visitDouble(DoubleField field) throws Exception {
-                        writeField(field, GlobsGson.DOUBLE_TYPE, out);
-                    }
-
-                    public void visitDoubleArray(DoubleArrayField field) throws Exception {
-                        writeField(field, GlobsGson.DOUBLE_ARRAY_TYPE, out);
-                    }
-
-                    public void visitBigDecimal(BigDecimalField field) throws Exception {
-                        writeField(field, GlobsGson.BIG_DECIMAL_TYPE, out);
-                    }
-
-                    public void visitBigDecimalArray(BigDecimalArrayField field) throws Exception {
-                        writeField(field, GlobsGson.BIG_DECIMAL_ARRAY_TYPE, out);
-                    }
-
-
-                    public void visitString(StringField field) throws Exception {
-                        writeField(field, GlobsGson.STRING_TYPE, out);
-                    }
-
-                    public void visitStringArray(StringArrayField field) throws Exception {
-                        writeField(field, GlobsGson.STRING_ARRAY_TYPE, out);
-                    }
-
-                    public void visitBoolean(BooleanField field) throws Exception {
-                        writeField(field, GlobsGson.BOOLEAN_TYPE, out);
-                    }
-
-                    public void visitBooleanArray(BooleanArrayField field) throws Exception {
-                        writeField(field, GlobsGson.BOOLEAN_ARRAY_TYPE, out);
-                    }
-
-                    public void visitLong(LongField field) throws Exception {
-                        writeField(field, GlobsGson.LONG_TYPE, out);
-                    }
-
-                    public void visitLongArray(LongArrayField field) throws Exception {
-                        writeField(field, GlobsGson.LONG_ARRAY_TYPE, out);
-                    }
-
-                    public void visitDate(DateField field) throws Exception {
-                        writeField(field, GlobsGson.DATE_TYPE, out);
-                    }
-
-                    public void visitDateTime(DateTimeField field) throws Exception {
-                        writeField(field, GlobsGson.DATE_TIME_TYPE, out);
-                    }
-
-                    public void visitBlob(BlobField field) throws Exception {
-                        writeField(field, GlobsGson.BLOB_TYPE, out);
-                    }
-
-                    public void visitGlob(GlobField field) throws Exception {
-                        writeField(field, GlobsGson.GLOB_TYPE, out, jsonWriter -> {
-                            try {
-                                jsonWriter.name(GlobsGson.GLOB_TYPE_KIND).value(field.getTargetType().getName());
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-                    }
-
-                    public void visitGlobArray(GlobArrayField field) throws Exception {
-                        writeField(field, GlobsGson.GLOB_ARRAY_TYPE, out, jsonWriter -> {
-                            try {
-                                jsonWriter.name(GlobsGson.GLOB_TYPE_KIND).value(field.getTargetType().getName());
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-                    }
-
-                    public void visitUnionGlob(GlobUnionField field) throws Exception {
-                        writeField(field, GlobsGson.GLOB_UNION_TYPE, out, new JsonUnionFieldWriterConsumer(field.getTargetTypes()));
-                    }
-
-                    public void visitUnionGlobArray(GlobArrayUnionField field) throws Exception {
-                        writeField(field, GlobsGson.GLOB_UNION_ARRAY_TYPE, out, new JsonUnionFieldWriterConsumer(field.getTargetTypes()));
-                    }
-                });
+                field.safeVisit(fieldTypeWriter, out);
             }
             out.endArray();
         }
@@ -165,7 +82,6 @@ class GlobTypeArrayGsonAdapter extends TypeAdapter<GlobType> {
 
     private void writeAnnotations(JsonWriter out, Stream<Glob> annotations) throws IOException {
         //order for test
-        GlobGsonAdapter globGsonAdapter = new GlobGsonAdapter(globTypeResolver);
         Stream<Glob> sorted = annotations;
         if (forceSort) {
             sorted = annotations.sorted(Comparator.comparing(g -> g.getType().getName()));
@@ -179,15 +95,110 @@ class GlobTypeArrayGsonAdapter extends TypeAdapter<GlobType> {
                     out.jsonValue(glob.get(UnknownAnnotation.CONTENT));
                 }
                 else {
-                    globGsonAdapter.write(out, glob);
+                    GlobGsonAdapter.writeGlob(out, glob);
                 }
             }
             out.endArray();
         }
     }
 
-    public GlobType read(JsonReader in) {
-        return globTypeGsonDeserializer.deserialize(JsonParser.parseReader(in));
+    public GlobType read(JsonReader in) throws IOException {
+        if (typesInProgress != null) {
+            return new GlobTypeStreamReader(globTypeResolver, ignoreUnknownAnnotation, null, false, null, typesInProgress).read(in);
+        }
+        return new GlobTypeStreamReader(globTypeResolver, ignoreUnknownAnnotation, null, false).read(in);
+    }
+
+    // one visitor for all the fields : the writer is given as context.
+    private class FieldTypeWriter implements FieldVisitorWithContext<JsonWriter> {
+        public void visitInteger(IntegerField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.INT_TYPE, out);
+        }
+
+        public void visitIntegerArray(IntegerArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.INT_ARRAY_TYPE, out);
+        }
+
+        public void visitDouble(DoubleField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.DOUBLE_TYPE, out);
+        }
+
+        public void visitDoubleArray(DoubleArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.DOUBLE_ARRAY_TYPE, out);
+        }
+
+        public void visitBigDecimal(BigDecimalField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.BIG_DECIMAL_TYPE, out);
+        }
+
+        public void visitBigDecimalArray(BigDecimalArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.BIG_DECIMAL_ARRAY_TYPE, out);
+        }
+
+
+        public void visitString(StringField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.STRING_TYPE, out);
+        }
+
+        public void visitStringArray(StringArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.STRING_ARRAY_TYPE, out);
+        }
+
+        public void visitBoolean(BooleanField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.BOOLEAN_TYPE, out);
+        }
+
+        public void visitBooleanArray(BooleanArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.BOOLEAN_ARRAY_TYPE, out);
+        }
+
+        public void visitLong(LongField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.LONG_TYPE, out);
+        }
+
+        public void visitLongArray(LongArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.LONG_ARRAY_TYPE, out);
+        }
+
+        public void visitDate(DateField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.DATE_TYPE, out);
+        }
+
+        public void visitDateTime(DateTimeField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.DATE_TIME_TYPE, out);
+        }
+
+        public void visitBlob(BlobField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.BLOB_TYPE, out);
+        }
+
+        public void visitGlob(GlobField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.GLOB_TYPE, out, jsonWriter -> {
+                try {
+                    jsonWriter.name(GlobsGson.GLOB_TYPE_KIND).value(field.getTargetType().getName());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        public void visitGlobArray(GlobArrayField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.GLOB_ARRAY_TYPE, out, jsonWriter -> {
+                try {
+                    jsonWriter.name(GlobsGson.GLOB_TYPE_KIND).value(field.getTargetType().getName());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+
+        public void visitUnionGlob(GlobUnionField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.GLOB_UNION_TYPE, out, new JsonUnionFieldWriterConsumer(field.getTargetTypes()));
+        }
+
+        public void visitUnionGlobArray(GlobArrayUnionField field, JsonWriter out) throws Exception {
+            writeField(field, GlobsGson.GLOB_UNION_ARRAY_TYPE, out, new JsonUnionFieldWriterConsumer(field.getTargetTypes()));
+        }
     }
 
     private static class JsonUnionFieldWriterConsumer implements Consumer<JsonWriter> {
@@ -0,0 +1,136 @@
+package org.globsframework.json;
+
+import org.globsframework.metamodel.GlobType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+Thread safe cache of decoded schemas (see GSonUtils.decodeGlobType) keyed by the sha-256 of the schema json :
+the json is not kept. A schema is decoded only once, the threads asking for a schema being decoded wait for the result.
+The cache is split in segments (by digest) with one lock each, a segment keep its least recently used schemas :
+at most maxSize schemas are kept.
+ */
+public class GlobTypeDecodeCache {
+    private static final int SEGMENTS = 16;
+    private final GlobTypeResolver resolver;
+    private final boolean ignoreUnknownAnnotation;
+    private final Segment[] segments;
+
+    public GlobTypeDecodeCache(GlobTypeResolver resolver, boolean ignoreUnknownAnnotation, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1, got " + maxSize);
+        }
+        this.resolver = resolver;
+        this.ignoreUnknownAnnotation = ignoreUnknownAnnotation;
+        segments = new Segment[Math.min(SEGMENTS, maxSize)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(maxSize / segments.length);
+        }
+    }
+
+    public GlobType decode(String json) {
+        Digest digest = Digest.of(json);
+        Segment segment = segments[Math.floorMod(digest.hashCode(), segments.length)];
+        CompletableFuture<GlobType> future;
+        boolean toLoad = false;
+        synchronized (segment) {
+            future = segment.get(digest);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                segment.put(digest, future);
+                toLoad = true;
+            }
+        }
+        if (toLoad) {
+            try {
+                future.complete(GSonUtils.decodeGlobType(json, resolver, ignoreUnknownAnnotation));
+            } catch (RuntimeException | Error e) {
+                synchronized (segment) {
+                    segment.remove(digest, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private static class Segment extends LinkedHashMap<Digest, CompletableFuture<GlobType>> {
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry<Digest, CompletableFuture<GlobType>> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    // the first 128 bits of the sha-256.
+    private static class Digest {
+        private final long high;
+        private final long low;
+
+        private Digest(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static Digest of(String json) {
+            byte[] digest = GlobTypeFingerprint.sha256().digest(json.getBytes(StandardCharsets.UTF_8));
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (digest[i] & 0xFF);
+                low = (low << 8) | (digest[i + 8] & 0xFF);
+            }
+            return new Digest(high, low);
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Digest)) {
+                return false;
+            }
+            Digest digest = (Digest) o;
+            return high == digest.high && low == digest.low;
+        }
+
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+    }
+}
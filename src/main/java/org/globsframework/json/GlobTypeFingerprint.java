@@ -0,0 +1,71 @@
+package org.globsframework.json;
+
+import com.google.gson.stream.JsonWriter;
+import org.globsframework.metamodel.GlobType;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/*
+64 bits hash of a canonical encoding of a GlobType : the type then the referenced types sorted by name,
+each written with its fields in declaration order and its annotations sorted by kind.
+Two processes that share the same definition get the same fingerprint.
+ */
+public class GlobTypeFingerprint {
+    private static final Map<GlobType, Long> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final GlobTypeArrayGsonAdapter CANONICAL_ENCODER = new GlobTypeArrayGsonAdapter(true, name -> null, false);
+
+    private GlobTypeFingerprint() {
+    }
+
+    public static long get(GlobType globType) {
+        Long fingerprint = CACHE.get(globType);
+        if (fingerprint == null) {
+            fingerprint = compute(GlobTypeSet.export(globType));
+            CACHE.put(globType, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    public static String toString(long fingerprint) {
+        return String.format("%016x", fingerprint);
+    }
+
+    public static long parse(String fingerprint) {
+        return Long.parseUnsignedLong(fingerprint, 16);
+    }
+
+    static long compute(GlobTypeSet globTypeSet) {
+        StringWriter writer = new StringWriter();
+        try {
+            JsonWriter out = new JsonWriter(writer);
+            out.beginArray();
+            for (GlobType type : globTypeSet.globType) {
+                CANONICAL_ENCODER.write(out, type);
+            }
+            out.endArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] digest = sha256().digest(writer.toString().getBytes(StandardCharsets.UTF_8));
+        long fingerprint = 0;
+        for (int i = 0; i < 8; i++) {
+            fingerprint = (fingerprint << 8) | (digest[i] & 0xFF);
+        }
+        return fingerprint;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
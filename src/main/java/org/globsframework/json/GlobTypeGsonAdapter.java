@@ -1,9 +1,9 @@
 package org.globsframework.json;
 
-import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
+import org.globsframework.json.annottations.UnknownAnnotation;
 import org.globsframework.metamodel.Field;
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.annotations.FieldNameAnnotationType;
@@ -20,13 +20,11 @@ import java.util.stream.Stream;
 
 class GlobTypeGsonAdapter extends TypeAdapter<GlobType> {
     private final boolean forceSort;
-    private GlobTypeResolver globTypeResolver;
-    private GlobTypeGsonDeserializer globTypeGsonDeserializer;
+    private final GlobTypeResolver globTypeResolver;
 
     public GlobTypeGsonAdapter(boolean forceSort, GlobTypeResolver globTypeResolver) {
         this.forceSort = forceSort;
         this.globTypeResolver = globTypeResolver;
-        globTypeGsonDeserializer = new GlobTypeGsonDeserializer(new GlobGSonDeserializer(), globTypeResolver, false);
     }
 
     public void write(JsonWriter out, GlobType type) throws IOException {
@@ -186,16 +184,19 @@ class GlobTypeGsonAdapter extends TypeAdapter<GlobType> {
             out.name(GlobsGson.ANNOTATIONS);
             out.beginArray();
             for (Glob glob : collect) {
-                globGsonAdapter.write(out, glob);
+                if (glob.getType().equals(UnknownAnnotation.TYPE)) {
+                    out.jsonValue(glob.get(UnknownAnnotation.CONTENT));
+                } else {
+                    globGsonAdapter.write(out, glob);
+                }
             }
             out.endArray();
         }
     }
 
 
-    public GlobType read(JsonReader in) {
-        JsonParser jsonParser = new JsonParser();
-        return globTypeGsonDeserializer.deserialize(jsonParser.parse(in));
+    public GlobType read(JsonReader in) throws IOException {
+        return new GlobTypeStreamReader(globTypeResolver, false, null, false).read(in);
     }
 
     private static class JsonUnionFieldWriterConsumer implements Consumer<JsonWriter> {
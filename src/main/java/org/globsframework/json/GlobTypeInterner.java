@@ -0,0 +1,40 @@
+package org.globsframework.json;
+
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.model.Glob;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Share the GlobType and the annotations read from identical schemas.
+A GlobType is identified by its fingerprint (see GlobTypeFingerprint) and an annotation by its json.
+The first instance read is kept and returned for all the next identical ones.
+ */
+public class GlobTypeInterner {
+    private final Map<Long, GlobType> types = new ConcurrentHashMap<>();
+    private final Map<String, Glob> annotations = new ConcurrentHashMap<>();
+
+    public GlobType intern(GlobType globType) {
+        GlobType previous = types.putIfAbsent(GlobTypeFingerprint.get(globType), globType);
+        return previous != null ? previous : globType;
+    }
+
+    public Glob intern(Glob annotation) {
+        Glob previous = annotations.putIfAbsent(GSonUtils.encode(annotation, true), annotation);
+        return previous != null ? previous : annotation;
+    }
+
+    public int typeCount() {
+        return types.size();
+    }
+
+    public int annotationCount() {
+        return annotations.size();
+    }
+
+    public void clear() {
+        types.clear();
+        annotations.clear();
+    }
+}
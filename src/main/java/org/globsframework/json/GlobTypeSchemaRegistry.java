@@ -0,0 +1,133 @@
+package org.globsframework.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.globsframework.metamodel.GlobType;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Schema reference by fingerprint (see GlobTypeFingerprint).
+A Peer remember the schemas already sent : the first time a type is written the value is
+{"id": "<fingerprint>", "schema": [GlobTypeSet]}, after that only "<fingerprint>" is written.
+The schema contains only the types not already sent to this peer (see GlobTypeSet.export), on the other side
+read() resolve the missing references by name from the previous schemas, register the received types and resolve the ids.
+ */
+public class GlobTypeSchemaRegistry implements GlobTypeResolver {
+    public static final String ID = "id";
+    public static final String SCHEMA = "schema";
+    private final GlobTypeResolver resolver;
+    private final boolean ignoreUnknownAnnotation;
+    private final GlobTypeSetAdapter globTypeSetAdapter;
+    private final Map<Long, GlobType> byId = new ConcurrentHashMap<>();
+    private final Map<String, GlobType> byName = new ConcurrentHashMap<>();
+
+    // resolver is used for the types that are not sent (annotations)
+    public GlobTypeSchemaRegistry(GlobTypeResolver resolver, boolean ignoreUnknownAnnotation) {
+        this.resolver = resolver;
+        this.ignoreUnknownAnnotation = ignoreUnknownAnnotation;
+        this.globTypeSetAdapter = new GlobTypeSetAdapter(false, resolver, ignoreUnknownAnnotation);
+    }
+
+    public long register(GlobType globType) {
+        long id = GlobTypeFingerprint.get(globType);
+        byId.putIfAbsent(id, globType);
+        byName.putIfAbsent(globType.getName(), globType);
+        return id;
+    }
+
+    public GlobType find(long id) {
+        return byId.get(id);
+    }
+
+    public GlobType get(long id) {
+        GlobType globType = byId.get(id);
+        if (globType == null) {
+            throw new RuntimeException("Unknown schema " + GlobTypeFingerprint.toString(id));
+        }
+        return globType;
+    }
+
+    public GlobType find(String name) {
+        GlobType globType = byName.get(name);
+        return globType != null ? globType : resolver.find(name);
+    }
+
+    public Peer newPeer() {
+        return new Peer();
+    }
+
+    public GlobType read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return get(GlobTypeFingerprint.parse(in.nextString()));
+        }
+        String id = null;
+        GlobTypeSet globTypeSet = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals(ID)) {
+                id = in.nextString();
+            } else if (name.equals(SCHEMA)) {
+                globTypeSet = merge(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (id == null || globTypeSet == null || globTypeSet.globType.length == 0) {
+            throw new RuntimeException(ID + " and " + SCHEMA + " expected");
+        }
+        // the id is the fingerprint computed by the sender
+        long fingerprint = GlobTypeFingerprint.parse(id);
+        GlobType known = byId.putIfAbsent(fingerprint, globTypeSet.globType[0]);
+        return known != null ? known : globTypeSet.globType[0];
+    }
+
+    // the types received replace the previous ones of the same name, the other references are resolved from the previous schemas.
+    private GlobTypeSet merge(JsonReader in) throws IOException {
+        GlobTypeSet globTypeSet;
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            globTypeSet = new GlobTypeSet(new GlobType[0]);
+        } else {
+            globTypeSet = new GlobTypeSet(new GlobTypeStreamReader(resolver, ignoreUnknownAnnotation, null, true, byName::get).readArray(in));
+        }
+        for (GlobType globType : globTypeSet.globType) {
+            byId.putIfAbsent(GlobTypeFingerprint.get(globType), globType);
+            byName.put(globType.getName(), globType);
+        }
+        return globTypeSet;
+    }
+
+    public class Peer {
+        private final Set<Long> sent = ConcurrentHashMap.newKeySet();
+
+        public void write(JsonWriter out, GlobType globType) throws IOException {
+            long id = register(globType);
+            if (sent.contains(id)) {
+                out.value(GlobTypeFingerprint.toString(id));
+            } else {
+                out.beginObject();
+                out.name(ID).value(GlobTypeFingerprint.toString(id));
+                GlobTypeSet missing = GlobTypeSet.exportMissing(globType, sent);
+                out.name(SCHEMA);
+                globTypeSetAdapter.write(out, missing);
+                out.endObject();
+                for (GlobType type : missing.globType) {
+                    sent.add(GlobTypeFingerprint.get(type));
+                }
+                sent.add(id);
+            }
+        }
+
+        // if the peer lost its registry.
+        public void reset() {
+            sent.clear();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.globsframework.metamodel.fields.GlobUnionField;
 import org.globsframework.model.Glob;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class GlobTypeSet {
     public final GlobType[] globType;
@@ -17,43 +18,58 @@ public class GlobTypeSet {
         this.globType = globType;
     }
 
+    // the root type first then the referenced types sorted by name : the export is the same from one run to the other.
     public static GlobTypeSet export(GlobType globType) {
-        Set<GlobType> types = new HashSet<>();
-        add(globType, types);
-        GlobType[] globTypes = new GlobType[types.size()];
-        types.remove(globType);
-        globTypes[0] = globType;
-        int i = 1;
-        for (GlobType type : types) {
+        return export(globType, type -> false);
+    }
+
+    // only the types the other side doesn't have : a known type is not exported and its references are not walked
+    // (they are known too). The root type, if not known, is first.
+    public static GlobTypeSet export(GlobType globType, Predicate<GlobType> known) {
+        Set<GlobType> types = new LinkedHashSet<>();
+        add(globType, types, known);
+        boolean withRoot = types.remove(globType);
+        List<GlobType> referenced = new ArrayList<>(types);
+        referenced.sort(Comparator.comparing(GlobType::getName));
+        GlobType[] globTypes = new GlobType[referenced.size() + (withRoot ? 1 : 0)];
+        int i = 0;
+        if (withRoot) {
+            globTypes[i++] = globType;
+        }
+        for (GlobType type : referenced) {
             globTypes[i++] = type;
         }
         return new GlobTypeSet(globTypes);
     }
 
-    private static void add(GlobType globType, Set<GlobType> types) {
-        if (!types.add(globType)) {
+    public static GlobTypeSet exportMissing(GlobType globType, Set<Long> knownFingerprints) {
+        return export(globType, type -> knownFingerprints.contains(GlobTypeFingerprint.get(type)));
+    }
+
+    private static void add(GlobType globType, Set<GlobType> types, Predicate<GlobType> known) {
+        if (known.test(globType) || !types.add(globType)) {
             return;
         }
-        globType.streamAnnotations().map(Glob::getType).forEach(types::add);
+        globType.streamAnnotations().map(Glob::getType).filter(known.negate()).forEach(types::add);
         Field[] fields = globType.getFields();
         for (Field field : fields) {
-            field.streamAnnotations().map(Glob::getType).forEach(types::add);
+            field.streamAnnotations().map(Glob::getType).filter(known.negate()).forEach(types::add);
             if (field instanceof GlobArrayField) {
-                add(((GlobArrayField) field).getTargetType(), types);
+                add(((GlobArrayField) field).getTargetType(), types, known);
             }
             if (field instanceof GlobField) {
-                add(((GlobField) field).getTargetType(), types);
+                add(((GlobField) field).getTargetType(), types, known);
             }
             if (field instanceof GlobUnionField) {
                 Collection<GlobType> subType = ((GlobUnionField) field).getTargetTypes();
                 for (GlobType type : subType) {
-                    add(type, types);
+                    add(type, types, known);
                 }
             }
             if (field instanceof GlobArrayUnionField) {
                 Collection<GlobType> subType = ((GlobArrayUnionField) field).getTargetTypes();
                 for (GlobType type : subType) {
-                    add(type, types);
+                    add(type, types, known);
                 }
             }
         }
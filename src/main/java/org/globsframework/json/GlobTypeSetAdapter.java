@@ -2,21 +2,37 @@ package org.globsframework.json;
 
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import org.globsframework.metamodel.GlobType;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 public class GlobTypeSetAdapter extends TypeAdapter<GlobTypeSet> {
-    GlobTypeArrayGsonAdapter globTypeArrayGsonAdapter;
-    private boolean forceSort;
-    private GlobTypeResolver globTypeResolver;
-    private boolean ignoreUnknownAnnotation;
+    private final GlobTypeArrayGsonAdapter globTypeArrayGsonAdapter;
+    private final boolean forceSort;
+    private final GlobTypeResolver globTypeResolver;
+    private final boolean ignoreUnknownAnnotation;
+    private final ForkJoinPool pool;
+    private final GlobTypeInterner interner;
 
     public GlobTypeSetAdapter(boolean forceSort, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation) {
+        this(forceSort, globTypeResolver, ignoreUnknownAnnotation, null);
+    }
+
+    // if pool is not null the types are read in parallel (see ParallelGlobTypeLoader)
+    public GlobTypeSetAdapter(boolean forceSort, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation, ForkJoinPool pool) {
+        this(forceSort, globTypeResolver, ignoreUnknownAnnotation, pool, null);
+    }
+
+    // if interner is not null identical types and annotations are shared (see GlobTypeInterner)
+    public GlobTypeSetAdapter(boolean forceSort, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation, ForkJoinPool pool,
+                              GlobTypeInterner interner) {
+        this.pool = pool;
+        this.interner = interner;
         this.forceSort = forceSort;
         this.globTypeResolver = globTypeResolver;
         this.ignoreUnknownAnnotation = ignoreUnknownAnnotation;
@@ -32,6 +48,24 @@ public class GlobTypeSetAdapter extends TypeAdapter<GlobTypeSet> {
     }
 
     public GlobTypeSet read(JsonReader in) throws IOException {
+        if (pool != null) {
+            return readParallel(in);
+        }
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL || token == JsonToken.END_DOCUMENT) {
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+            }
+            return new GlobTypeSet(new GlobType[0]);
+        }
+        if (token != JsonToken.BEGIN_ARRAY) {
+            throw new RuntimeException("array expected got " + token);
+        }
+        return new GlobTypeSet(new GlobTypeStreamReader(globTypeResolver, ignoreUnknownAnnotation, interner, true).readArray(in));
+    }
+
+    // the ParallelGlobTypeLoader need all the types to compute the dependencies.
+    private GlobTypeSet readParallel(JsonReader in) {
         JsonParser jsonParser = new JsonParser();
         JsonElement root = jsonParser.parse(in);
         if (root == null || root == JsonNull.INSTANCE) {
@@ -51,40 +85,7 @@ public class GlobTypeSetAdapter extends TypeAdapter<GlobTypeSet> {
             String kind = jsonKind.getAsString();
             typesToRead.put(kind, jsonType);
         }
-        Resolver resolver = new Resolver(globTypeResolver, typesToRead, ignoreUnknownAnnotation);
-        typesToRead.forEach((key, value) -> resolver.find(key));
-        return new GlobTypeSet(typesToRead.keySet().stream().map(resolver::find).toArray(GlobType[]::new));
+        return new GlobTypeSet(new ParallelGlobTypeLoader(pool, globTypeResolver, ignoreUnknownAnnotation, interner)
+                .load(typesToRead).values().toArray(new GlobType[0]));
     }
-
-    static class Resolver implements GlobTypeResolver {
-        private GlobTypeResolver globTypeResolver;
-        final Map<String, JsonObject> typesToRead;
-        final Map<String, GlobType> readTypes = new HashMap<>();
-        private final GlobTypeGsonDeserializer globTypeGsonDeserializer;
-
-        Resolver(GlobTypeResolver globTypeResolver, Map<String, JsonObject> typesToRead, boolean ignoreUnknownAnnotation) {
-            this.globTypeResolver = globTypeResolver;
-            this.typesToRead = typesToRead;
-            globTypeGsonDeserializer = new GlobTypeGsonDeserializer(new GlobGSonDeserializer(), this, ignoreUnknownAnnotation);
-        }
-
-        public GlobType find(String name) {
-            GlobType globType1 = globTypeResolver.find(name);
-            if (globType1 != null) {
-                return globType1;
-            }
-            JsonObject jsonObject = typesToRead.get(name);
-            if (jsonObject == null) {
-                return null;
-            }
-            GlobType globType = readTypes.get(name);
-            if (globType != null) {
-                return globType;
-            }
-            GlobType readType = globTypeGsonDeserializer.deserialize(jsonObject);
-            readTypes.put(readType.getName(), readType);
-            return readType;
-        }
-    }
-
 }
@@ -0,0 +1,534 @@
+package org.globsframework.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.globsframework.json.annottations.UnknownAnnotation;
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.metamodel.GlobTypeBuilder;
+import org.globsframework.metamodel.impl.DefaultGlobTypeBuilder;
+import org.globsframework.model.Glob;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+/*
+Read the GlobTypes from the json tokens without building the JsonElement tree.
+The fields are declared on the GlobTypeBuilder while they are read, in any order of the properties. A field that
+reference a type not read yet is deferred (with the fields after it, to keep the order) until that type is read.
+A type not completely declared is pending : the other types use its unCompleteType (recursive types).
+An annotation whose type is not known yet is kept as json (see RawAnnotation) : if its type stay unknown the json
+is the UnknownAnnotation content without being parsed again.
+One instance by read : it is not thread safe. It is the only reader of the json GlobTypes (the parallel load read
+each component with one instance).
+A resolver that read one type by call and is asked for the types referenced while reading (LoadingGlobTypeResolver) give
+its typesInProgress to each read : the unCompleteType of the types being read are added in it and the resolver return
+them, so two types that reference each other are read by two nested calls.
+ */
+class GlobTypeStreamReader {
+    private final GlobTypeResolver globTypeResolver;
+    private final boolean ignoreUnknownAnnotation;
+    private final GlobTypeInterner interner;
+    private final boolean skipKnownTypes;
+    private final GlobTypeResolver previousTypes;
+    private final Map<String, GlobType> typesInProgress;
+    private final Map<String, GlobType> readTypes = new HashMap<>();
+    private final Map<String, TypeInProgress> pending = new LinkedHashMap<>();
+    private boolean allTypesRead;
+
+    // if skipKnownTypes a type found by the globTypeResolver is not read (as in GlobTypeSetAdapter).
+    GlobTypeStreamReader(GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation, GlobTypeInterner interner, boolean skipKnownTypes) {
+        this(globTypeResolver, ignoreUnknownAnnotation, interner, skipKnownTypes, null);
+    }
+
+    // previousTypes is asked at the end of the read, only for the names not read : a type read replace the previous
+    // type of the same name (see GlobTypeSchemaRegistry).
+    GlobTypeStreamReader(GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation, GlobTypeInterner interner, boolean skipKnownTypes,
+                         GlobTypeResolver previousTypes) {
+        this(globTypeResolver, ignoreUnknownAnnotation, interner, skipKnownTypes, previousTypes, new HashMap<>());
+    }
+
+    GlobTypeStreamReader(GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation, GlobTypeInterner interner, boolean skipKnownTypes,
+                         GlobTypeResolver previousTypes, Map<String, GlobType> typesInProgress) {
+        this.typesInProgress = typesInProgress;
+        this.globTypeResolver = globTypeResolver;
+        this.ignoreUnknownAnnotation = ignoreUnknownAnnotation;
+        this.interner = interner;
+        this.skipKnownTypes = skipKnownTypes;
+        this.previousTypes = previousTypes;
+    }
+
+    GlobType read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            String name = readType(in);
+            complete();
+            return findComplete(name);
+        } finally {
+            releasePending();
+        }
+    }
+
+    GlobType[] readArray(JsonReader in) throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            in.beginArray();
+            while (in.hasNext()) {
+                names.add(readType(in));
+            }
+            in.endArray();
+            complete();
+        } finally {
+            releasePending();
+        }
+        GlobType[] globTypes = new GlobType[names.size()];
+        int i = 0;
+        for (String name : names) {
+            globTypes[i++] = findComplete(name);
+        }
+        return globTypes;
+    }
+
+    // on failure the types not completed are removed from the typesInProgress of the resolver.
+    private void releasePending() {
+        for (String name : pending.keySet()) {
+            typesInProgress.remove(name);
+        }
+    }
+
+    private String readType(JsonReader in) throws IOException {
+        TypeInProgress type = new TypeInProgress();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case GlobsGson.TYPE_NAME: {
+                    String name = in.nextString();
+                    if (skipKnownTypes && globTypeResolver.find(name) != null) {
+                        while (in.hasNext()) {
+                            in.nextName();
+                            in.skipValue();
+                        }
+                        in.endObject();
+                        return name;
+                    }
+                    type.init(name);
+                    break;
+                }
+                case GlobsGson.FIELDS:
+                    readFields(in, type);
+                    break;
+                case GlobsGson.ANNOTATIONS:
+                    type.annotations = readAnnotations(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type.name == null) {
+            throw new RuntimeException("Missing " + GlobsGson.TYPE_NAME);
+        }
+        type.allRead = true;
+        progress();
+        return type.name;
+    }
+
+    private void readFields(JsonReader in, TypeInProgress type) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                type.add(readField(in, name));
+            }
+            in.endObject();
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            while (in.hasNext()) {
+                if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                    type.add(readField(in, null));
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endArray();
+        } else {
+            in.skipValue();
+        }
+    }
+
+    private FieldDescription readField(JsonReader in, String name) throws IOException {
+        FieldDescription field = new FieldDescription();
+        field.name = name;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case GlobsGson.FIELD_NAME: {
+                    String fieldName = in.nextString();
+                    if (field.name == null) {
+                        field.name = fieldName;
+                    }
+                    break;
+                }
+                case GlobsGson.FIELD_TYPE:
+                    field.type = in.nextString();
+                    break;
+                case GlobsGson.GLOB_TYPE_KIND:
+                    field.kinds = Collections.singletonList(in.nextString());
+                    break;
+                case GlobsGson.GLOB_UNION_KINDS: {
+                    List<String> kinds = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        kinds.add(in.nextString());
+                    }
+                    in.endArray();
+                    field.kinds = kinds;
+                    break;
+                }
+                case GlobsGson.ANNOTATIONS:
+                    field.annotations = readAnnotations(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (field.name == null || field.type == null) {
+            throw new RuntimeException("Missing " + GlobsGson.FIELD_NAME + " or " + GlobsGson.FIELD_TYPE + " in field " + field.name);
+        }
+        return field;
+    }
+
+    // a Glob if its type is known else a RawAnnotation.
+    private List<Object> readAnnotations(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return Collections.emptyList();
+        }
+        List<Object> annotations = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                annotations.add(readAnnotation(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endArray();
+        return annotations;
+    }
+
+    // an annotation of unknown type is copied as json, it is parsed only if its type is read later.
+    private Object readAnnotation(JsonReader in) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonWriter out = new JsonWriter(writer);
+        out.setHtmlSafe(true);
+        out.setSerializeNulls(false);
+        String kind = null;
+        in.beginObject();
+        out.beginObject();
+        boolean first = true;
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals(GlobsGson.KIND_NAME) && in.peek() == JsonToken.STRING) {
+                kind = in.nextString();
+                GlobType globType = first && !kind.equals(UnknownAnnotation.TYPE.getName()) ? findComplete(kind) : null;
+                if (globType != null) {
+                    Glob glob = GlobGSonDeserializer.readFields(in, globType);
+                    in.endObject();
+                    return intern(glob);
+                }
+                out.name(name).value(kind);
+            } else {
+                out.name(name);
+                JsonCopy.copyValue(in, out);
+            }
+            first = false;
+        }
+        in.endObject();
+        out.endObject();
+        out.flush();
+        return new RawAnnotation(kind, writer.toString());
+    }
+
+    // complete the pending types until no more progress. If the pending types reference each other (cycle)
+    // the first one use the unCompleteType of the others.
+    private void progress() {
+        while (true) {
+            boolean completed = false;
+            for (TypeInProgress type : new ArrayList<>(pending.values())) {
+                type.flush(Resolution.COMPLETE);
+                completed |= type.tryComplete(false);
+            }
+            if (!completed && !flushFirst(Resolution.PENDING)) {
+                return;
+            }
+        }
+    }
+
+    private boolean flushFirst(Resolution resolution) {
+        for (TypeInProgress type : pending.values()) {
+            if (type.allRead && type.flush(resolution)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // end of the read : the remaining references are resolved (TypeNotFound or UnknownAnnotation).
+    private void complete() {
+        allTypesRead = true;
+        progress();
+        for (TypeInProgress type : new ArrayList<>(pending.values())) {
+            type.flush(Resolution.FORCE);
+            type.tryComplete(true);
+        }
+    }
+
+    private GlobType findComplete(String name) {
+        GlobType globType = readTypes.get(name);
+        if (globType != null) {
+            return globType;
+        }
+        globType = globTypeResolver.find(name);
+        if (globType == null && previousTypes != null && allTypesRead && !pending.containsKey(name)) {
+            return previousTypes.find(name);
+        }
+        return globType;
+    }
+
+    private GlobType findAny(String name) {
+        TypeInProgress type = pending.get(name);
+        return type != null ? type.globTypeBuilder.unCompleteType() : findComplete(name);
+    }
+
+    private boolean isResolvable(Object annotation) {
+        if (annotation instanceof Glob) {
+            return true;
+        }
+        String kind = ((RawAnnotation) annotation).kind;
+        return kind == null || kind.equals(UnknownAnnotation.TYPE.getName()) || findComplete(kind) != null;
+    }
+
+    private List<Glob> resolve(List<Object> annotations) {
+        if (annotations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Glob> globs = new ArrayList<>(annotations.size());
+        for (Object annotation : annotations) {
+            if (annotation instanceof Glob) {
+                globs.add((Glob) annotation);
+            } else {
+                RawAnnotation rawAnnotation = (RawAnnotation) annotation;
+                if (rawAnnotation.kind == null) {
+                    throw new RuntimeException("Missing " + GlobsGson.KIND_NAME + " in " + rawAnnotation.json);
+                }
+                globs.add(intern(GlobGSonDeserializer.deserialize(rawAnnotation.kind, rawAnnotation.json, this::findAny, ignoreUnknownAnnotation)));
+            }
+        }
+        return globs;
+    }
+
+    private Glob intern(Glob annotation) {
+        return interner != null ? interner.intern(annotation) : annotation;
+    }
+
+    enum Resolution {
+        COMPLETE, // the referenced types are read (or the type itself)
+        PENDING,  // the referenced types are at least pending
+        FORCE
+    }
+
+    static class RawAnnotation {
+        final String kind;
+        final String json;
+
+        RawAnnotation(String kind, String json) {
+            this.kind = kind;
+            this.json = json;
+        }
+    }
+
+    static class FieldDescription {
+        String name;
+        String type;
+        List<String> kinds = Collections.emptyList();
+        List<Object> annotations = Collections.emptyList();
+    }
+
+    class TypeInProgress {
+        String name;
+        GlobTypeBuilder globTypeBuilder;
+        final Deque<FieldDescription> deferred = new ArrayDeque<>();
+        List<Object> annotations = Collections.emptyList();
+        boolean allRead;
+        boolean usedByOther;    // its unCompleteType is referenced
+        boolean usePending;     // it references an unCompleteType
+
+        void init(String name) {
+            this.name = name;
+            globTypeBuilder = DefaultGlobTypeBuilder.init(name);
+            pending.put(name, this);
+            typesInProgress.put(name, globTypeBuilder.unCompleteType());
+            flush(Resolution.COMPLETE);
+        }
+
+        void add(FieldDescription field) {
+            deferred.add(field);
+            flush(Resolution.COMPLETE);
+        }
+
+        boolean flush(Resolution resolution) {
+            if (globTypeBuilder == null) {
+                return false;
+            }
+            boolean declared = false;
+            while (!deferred.isEmpty() && (resolution == Resolution.FORCE || canDeclare(deferred.peek(), resolution))) {
+                declare(deferred.poll());
+                declared = true;
+            }
+            return declared;
+        }
+
+        boolean tryComplete(boolean force) {
+            if (!allRead || !deferred.isEmpty()) {
+                return false;
+            }
+            if (!force) {
+                for (Object annotation : annotations) {
+                    if (!isResolvable(annotation)) {
+                        return false;
+                    }
+                }
+            }
+            for (Glob annotation : resolve(annotations)) {
+                globTypeBuilder.addAnnotation(annotation);
+            }
+            GlobType globType = globTypeBuilder.get();
+            pending.remove(name);
+            typesInProgress.remove(name);
+            if (interner != null && !usedByOther && !usePending) {
+                globType = interner.intern(globType);
+            }
+            readTypes.put(name, globType);
+            return true;
+        }
+
+        private boolean canDeclare(FieldDescription field, Resolution resolution) {
+            for (String kind : field.kinds) {
+                if (!kind.equals(name) && findComplete(kind) == null &&
+                        (resolution == Resolution.COMPLETE || !pending.containsKey(kind))) {
+                    return false;
+                }
+            }
+            for (Object annotation : field.annotations) {
+                if (!isResolvable(annotation)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private GlobType target(String kind) {
+            TypeInProgress type = pending.get(kind);
+            if (type != null && type != this) {
+                type.usedByOther = true;
+                usePending = true;
+            } else if (type == null && typesInProgress.containsKey(kind)) {
+                // being read by an other call of the resolver.
+                usePending = true;
+            }
+            GlobType globType = findAny(kind);
+            if (globType == null) {
+                throw new GlobTypeResolver.TypeNotFound(kind);
+            }
+            return globType;
+        }
+
+        private List<GlobType> targets(List<String> kinds) {
+            List<GlobType> globTypes = new ArrayList<>(kinds.size());
+            for (String kind : kinds) {
+                globTypes.add(target(kind));
+            }
+            return globTypes;
+        }
+
+        private String kind(FieldDescription field) {
+            if (field.kinds.isEmpty()) {
+                throw new RuntimeException("Missing " + GlobsGson.GLOB_TYPE_KIND + " for " + field.name);
+            }
+            return field.kinds.get(0);
+        }
+
+        private void declare(FieldDescription field) {
+            List<Glob> globList = resolve(field.annotations);
+            String attrName = field.name;
+            switch (field.type) {
+                case GlobsGson.INT_TYPE:
+                    globTypeBuilder.declareIntegerField(attrName, globList);
+                    break;
+                case GlobsGson.INT_ARRAY_TYPE:
+                    globTypeBuilder.declareIntegerArrayField(attrName, globList);
+                    break;
+                case GlobsGson.DOUBLE_TYPE:
+                    globTypeBuilder.declareDoubleField(attrName, globList);
+                    break;
+                case GlobsGson.DOUBLE_ARRAY_TYPE:
+                    globTypeBuilder.declareDoubleArrayField(attrName, globList);
+                    break;
+                case GlobsGson.STRING_TYPE:
+                    globTypeBuilder.declareStringField(attrName, globList);
+                    break;
+                case GlobsGson.STRING_ARRAY_TYPE:
+                    globTypeBuilder.declareStringArrayField(attrName, globList);
+                    break;
+                case GlobsGson.BOOLEAN_TYPE:
+                    globTypeBuilder.declareBooleanField(attrName, globList);
+                    break;
+                case GlobsGson.BOOLEAN_ARRAY_TYPE:
+                    globTypeBuilder.declareBooleanArrayField(attrName, globList);
+                    break;
+                case GlobsGson.LONG_TYPE:
+                    globTypeBuilder.declareLongField(attrName, globList);
+                    break;
+                case GlobsGson.LONG_ARRAY_TYPE:
+                    globTypeBuilder.declareLongArrayField(attrName, globList);
+                    break;
+                case GlobsGson.BIG_DECIMAL_TYPE:
+                    globTypeBuilder.declareBigDecimalField(attrName, globList);
+                    break;
+                case GlobsGson.BIG_DECIMAL_ARRAY_TYPE:
+                    globTypeBuilder.declareBigDecimalArrayField(attrName, globList);
+                    break;
+                case GlobsGson.DATE_TYPE:
+                    globTypeBuilder.declareDateField(attrName, globList);
+                    break;
+                case GlobsGson.DATE_TIME_TYPE:
+                    globTypeBuilder.declareDateTimeField(attrName, globList);
+                    break;
+                case GlobsGson.BLOB_TYPE:
+                    globTypeBuilder.declareBlobField(attrName, globList);
+                    break;
+                case GlobsGson.GLOB_TYPE:
+                    globTypeBuilder.declareGlobField(attrName, target(kind(field)), globList);
+                    break;
+                case GlobsGson.GLOB_ARRAY_TYPE:
+                    globTypeBuilder.declareGlobArrayField(attrName, target(kind(field)), globList);
+                    break;
+                case GlobsGson.GLOB_UNION_TYPE:
+                    globTypeBuilder.declareGlobUnionField(attrName, targets(field.kinds), globList);
+                    break;
+                case GlobsGson.GLOB_UNION_ARRAY_TYPE:
+                    globTypeBuilder.declareGlobUnionArrayField(attrName, targets(field.kinds), globList);
+                    break;
+                default:
+                    throw new RuntimeException(field.type + " not managed");
+            }
+        }
+    }
+}
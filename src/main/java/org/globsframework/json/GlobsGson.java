@@ -40,7 +40,9 @@ public class GlobsGson {
     private GlobsGson() {
     }
 
-    // WARN : GlobTypeGsonAdapter is state full : it keep the
+    // the adapters keep no state between two reads (a read use its own GlobTypeStreamReader) : one Gson can be used from many threads.
+    // A resolver that read one type per call (lazy loading) must carry the types in progress from a call to the next
+    // (see GSonUtils.decodeGlobType with typesInProgress) : a read through this Gson does not see them.
     static public GsonBuilder createBuilder(GlobTypeResolver globTypeResolver) {
         return createBuilder(globTypeResolver, true);
     }
@@ -51,6 +53,7 @@ public class GlobsGson {
                 .registerTypeHierarchyAdapter(GlobType.class, new GlobTypeArrayGsonAdapter(false, globTypeResolver, ignoreUnknownAnnotation))
                 .registerTypeHierarchyAdapter(GlobTypeSet.class, new GlobTypeSetAdapter(false, globTypeResolver, ignoreUnknownAnnotation))
                 .registerTypeHierarchyAdapter(Glob.class, new GlobGsonAdapter(globTypeResolver))
+                .registerTypeAdapterFactory(new GlobListTypeAdapterFactory(globTypeResolver, false))
 //                .registerTypeHierarchyAdapter(Key.class, new KeyGsonAdapter(globTypeResolver)) // not possible because AbstractGlob inherit from Key...
                 .registerTypeHierarchyAdapter(PreChangeSet.class, new PreChangeSetGsonAdapter(globTypeResolver))
                 ;
@@ -0,0 +1,57 @@
+package org.globsframework.json;
+
+import org.globsframework.json.annottations.JsonAsObjectType;
+import org.globsframework.json.annottations.JsonValueAsFieldType;
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.fields.AbstractFieldValueVisitor;
+import org.globsframework.metamodel.fields.FieldValueVisitor;
+import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.model.Glob;
+
+/*
+A JsonAsObject glob array is one object : the name of a member is the value of the JsonValueAsField field
+of the element, and this field is not repeated in the member.
+writeFields give the other fields of an element to the visitor. One instance is kept by a visitor for all its
+elements, the skipped field is restored after an element as it can contain an other JsonAsObject array.
+ */
+class JsonAsObjectElements extends AbstractFieldValueVisitor {
+    private final FieldValueVisitor visitor;
+    private Field skipped;
+
+    JsonAsObjectElements(FieldValueVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    static Field nameField(GlobArrayField field) {
+        Field fieldValueToUseAsName = field.getTargetType().findFieldWithAnnotation(JsonValueAsFieldType.UNIQUE_KEY);
+        if (fieldValueToUseAsName == null) {
+            throw new RuntimeException("A field with " + JsonValueAsFieldType.TYPE.getName() + " annotation is expected after " +
+                    JsonAsObjectType.TYPE.getName() + " for " + field.getFullName());
+        }
+        return fieldValueToUseAsName;
+    }
+
+    static String name(Glob element, Field nameField) {
+        Object value = element.getValue(nameField);
+        if (value == null) {
+            throw new RuntimeException("Value can not be null for a JsonValueAsField field " + nameField.getFullName());
+        }
+        return value instanceof String ? (String) value : value.toString();
+    }
+
+    void writeFields(Glob element, Field nameField) {
+        Field previousSkipped = skipped;
+        skipped = nameField;
+        try {
+            element.safeAccept(this);
+        } finally {
+            skipped = previousSkipped;
+        }
+    }
+
+    public void notManaged(Field field, Object value) throws Exception {
+        if (field != skipped) {
+            field.safeVisit(visitor, value);
+        }
+    }
+}
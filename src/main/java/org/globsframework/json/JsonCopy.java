@@ -0,0 +1,194 @@
+package org.globsframework.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+/*
+Copy a json value token by token from a reader to a writer : no JsonElement tree.
+readValue give the same String as GSON.toJson(JsonParser.parseReader(in)) (html safe, null members removed),
+the numbers are copied as they are read.
+readObject/writeObject do the same between json and Map/List/String/Number/Boolean (a number is a Long if it is integral
+else a Double). writeObject also accept the arrays put by MapFieldValueVisitor (Object[], int[], long[], double[], boolean[]).
+ */
+public class JsonCopy {
+
+    private JsonCopy() {
+    }
+
+    public static String readValue(JsonReader in) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonWriter out = new JsonWriter(writer);
+        out.setLenient(true);
+        out.setHtmlSafe(true);
+        out.setSerializeNulls(false);
+        copyValue(in, out);
+        out.flush();
+        return writer.toString();
+    }
+
+    public static void copyValue(JsonReader in, JsonWriter out) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                in.beginObject();
+                out.beginObject();
+                while (in.hasNext()) {
+                    out.name(in.nextName());
+                    copyValue(in, out);
+                }
+                in.endObject();
+                out.endObject();
+                break;
+            case BEGIN_ARRAY:
+                in.beginArray();
+                out.beginArray();
+                while (in.hasNext()) {
+                    copyValue(in, out);
+                }
+                in.endArray();
+                out.endArray();
+                break;
+            case STRING:
+                out.value(in.nextString());
+                break;
+            case NUMBER:
+                out.jsonValue(in.nextString());
+                break;
+            case BOOLEAN:
+                out.value(in.nextBoolean());
+                break;
+            case NULL:
+                in.nextNull();
+                out.nullValue();
+                break;
+            default:
+                throw new RuntimeException("Unexpected token " + in.peek() + " at " + in.getPath());
+        }
+    }
+
+    public static Object readObject(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return readObject(new JsonReader(new GSonUtils.NoLockStringReader(json)));
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read " + json, e);
+        }
+    }
+
+    public static Object readObject(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT: {
+                Map<String, Object> values = new LinkedHashMap<>();
+                in.beginObject();
+                while (in.hasNext()) {
+                    values.put(in.nextName(), readObject(in));
+                }
+                in.endObject();
+                return values;
+            }
+            case BEGIN_ARRAY: {
+                List<Object> values = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    values.add(readObject(in));
+                }
+                in.endArray();
+                return values;
+            }
+            case STRING:
+                return in.nextString();
+            case NUMBER: {
+                String number = in.nextString();
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
+                }
+            }
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new RuntimeException("Unexpected token " + in.peek() + " at " + in.getPath());
+        }
+    }
+
+    public static String toJson(Object value) {
+        StringWriter writer = new StringWriter();
+        JsonWriter out = new JsonWriter(writer);
+        out.setLenient(true);
+        out.setHtmlSafe(true);
+        out.setSerializeNulls(false);
+        try {
+            writeObject(out, value);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to write " + value, e);
+        }
+        return writer.toString();
+    }
+
+    public static void writeObject(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof Map) {
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                writeObject(out, entry.getValue());
+            }
+            out.endObject();
+        } else if (value instanceof Collection) {
+            out.beginArray();
+            for (Object o : (Collection<?>) value) {
+                writeObject(out, o);
+            }
+            out.endArray();
+        } else if (value instanceof Object[]) {
+            out.beginArray();
+            for (Object o : (Object[]) value) {
+                writeObject(out, o);
+            }
+            out.endArray();
+        } else if (value instanceof int[]) {
+            out.beginArray();
+            for (int v : (int[]) value) {
+                out.value(v);
+            }
+            out.endArray();
+        } else if (value instanceof long[]) {
+            out.beginArray();
+            for (long v : (long[]) value) {
+                out.value(v);
+            }
+            out.endArray();
+        } else if (value instanceof double[]) {
+            out.beginArray();
+            for (double v : (double[]) value) {
+                out.value(v);
+            }
+            out.endArray();
+        } else if (value instanceof boolean[]) {
+            out.beginArray();
+            for (boolean v : (boolean[]) value) {
+                out.value(v);
+            }
+            out.endArray();
+        } else if (value instanceof String) {
+            out.value((String) value);
+        } else if (value instanceof Boolean) {
+            out.value((Boolean) value);
+        } else if (value instanceof Number) {
+            out.value((Number) value);
+        } else {
+            throw new RuntimeException("Unexpected value " + value.getClass().getName() + " : " + value);
+        }
+    }
+}
@@ -3,23 +3,30 @@ package org.globsframework.json;
 import com.google.gson.stream.JsonWriter;
 import org.globsframework.json.annottations.IsJsonContentType;
 import org.globsframework.json.annottations.JsonAsObjectType;
-import org.globsframework.json.annottations.JsonValueAsFieldType;
 import org.globsframework.metamodel.Field;
 import org.globsframework.metamodel.fields.*;
 import org.globsframework.model.Glob;
 
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.Objects;
 
 public class JsonFieldValueVisitor implements FieldValueVisitor {
     private final JsonWriter jsonWriter;
+    private final Writer out;
+    private final JsonAsObjectElements elements = new JsonAsObjectElements(this);
 
     public JsonFieldValueVisitor(JsonWriter jsonWriter) {
+        this(jsonWriter, null);
+    }
+
+    // the blobs are written in base64 by chunks directly in out (the writer of jsonWriter).
+    public JsonFieldValueVisitor(JsonWriter jsonWriter, Writer out) {
         this.jsonWriter = jsonWriter;
+        this.out = out;
     }
 
     public void visitInteger(IntegerField field, Integer value) throws Exception {
@@ -160,10 +167,15 @@ public class JsonFieldValueVisitor implements FieldValueVisitor {
 
     public void visitBlob(BlobField field, byte[] value) throws Exception {
         jsonWriter.name(field.getName());
-        if (value != null) {
-            jsonWriter.value(Base64.getEncoder().encodeToString(value));
-        } else {
+        if (value == null) {
             jsonWriter.nullValue();
+        } else if (out != null) {
+            jsonWriter.jsonValue("");
+            out.write('"');
+            Base64Chunks.write(out, value, jsonWriter.isHtmlSafe());
+            out.write('"');
+        } else {
+            jsonWriter.value(Base64.getEncoder().encodeToString(value));
         }
     }
 
@@ -181,28 +193,16 @@ public class JsonFieldValueVisitor implements FieldValueVisitor {
     public void visitGlobArray(GlobArrayField field, Glob[] value) throws Exception {
         if (field.hasAnnotation(JsonAsObjectType.UNIQUE_KEY)) {
             jsonWriter.name(field.getName());
-            jsonWriter.beginObject();
-            Field fieldValueToUseAsName = field.getTargetType().findFieldWithAnnotation(JsonValueAsFieldType.UNIQUE_KEY);
-            if (fieldValueToUseAsName == null) {
-                throw new RuntimeException("A field with " + JsonValueAsFieldType.TYPE.getName() + " annotation is expected after " +
-                        JsonAsObjectType.TYPE.getName() + " for " + field.getFullName());
+            if (value == null) {
+                jsonWriter.nullValue();
+                return;
             }
+            Field fieldValueToUseAsName = JsonAsObjectElements.nameField(field);
+            jsonWriter.beginObject();
             for (Glob glob : value) {
-                Object value1 = glob.getValue(fieldValueToUseAsName);
-                if (value1 == null) {
-                    throw new RuntimeException("Value can not be null for a JsonValueAsField field " + fieldValueToUseAsName.getFullName());
-                }
-                jsonWriter.name(Objects.toString(value1));
+                jsonWriter.name(JsonAsObjectElements.name(glob, fieldValueToUseAsName));
                 jsonWriter.beginObject();
-
-                glob.safeAccept(new AbstractFieldValueVisitor(){
-                    public void notManaged(Field field, Object value) throws Exception {
-                        if (field != fieldValueToUseAsName) {
-                            field.safeVisit(JsonFieldValueVisitor.this, value);
-                        }
-                    }
-                });
-
+                addGlobAttributes(glob, fieldValueToUseAsName);
                 jsonWriter.endObject();
             }
             jsonWriter.endObject();
@@ -227,6 +227,11 @@ public class JsonFieldValueVisitor implements FieldValueVisitor {
         v.safeAccept(this);
     }
 
+    // an element of a JsonAsObject array : the JsonValueAsField field (skipped) is the name of the object.
+    public void addGlobAttributes(Glob v, Field skipped) {
+        elements.writeFields(v, skipped);
+    }
+
     public void visitUnionGlob(GlobUnionField field, Glob value) throws Exception {
         jsonWriter.name(field.getName());
         if (value != null) {
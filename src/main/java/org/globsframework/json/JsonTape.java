@@ -0,0 +1,288 @@
+package org.globsframework.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/*
+Compact record of json tokens : each token is stored as 3 int (token type, offset, length)
+in tokens and the text of the names and values is copied in one char buffer.
+It is used when a value can only be decoded once a following property is read (a "_kind" that is not the
+first property, a changeSet key before its kind) : the value is recorded once and replayed with the
+streaming readers when the type is known.
+ */
+public class JsonTape {
+    private static final JsonToken[] TOKENS = JsonToken.values();
+    private static final Reader UNREADABLE_READER = new Reader() {
+        public int read(char[] buffer, int offset, int count) {
+            throw new AssertionError();
+        }
+
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+    private int[] tokens = new int[3 * 32];
+    private int tokenCount;
+    private char[] chars = new char[256];
+    private int charCount;
+    private String kind;
+
+    private JsonTape() {
+    }
+
+    // the reader is positioned after the first name of an object, the object end is consumed.
+    public static JsonTape readObjectEnd(JsonReader in, String firstName) throws IOException {
+        JsonTape tape = new JsonTape();
+        String name = firstName;
+        while (true) {
+            tape.add(JsonToken.NAME, name);
+            if (name.equals(GlobsGson.KIND_NAME) && in.peek() == JsonToken.STRING) {
+                tape.kind = in.nextString();
+                tape.add(JsonToken.STRING, tape.kind);
+            } else {
+                tape.recordValue(in);
+            }
+            if (in.peek() == JsonToken.END_OBJECT) {
+                break;
+            }
+            name = in.nextName();
+        }
+        in.endObject();
+        tape.add(JsonToken.END_OBJECT, 0, 0);
+        return tape;
+    }
+
+    // record the next value, the reader is positioned on it.
+    public static JsonTape readValue(JsonReader in) throws IOException {
+        JsonTape tape = new JsonTape();
+        tape.recordValue(in);
+        return tape;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    // a reader positioned on the first recorded token.
+    public JsonReader reader() {
+        return new TapeReader();
+    }
+
+    private void recordValue(JsonReader in) throws IOException {
+        JsonToken peek = in.peek();
+        switch (peek) {
+            case BEGIN_OBJECT:
+                add(JsonToken.BEGIN_OBJECT, 0, 0);
+                in.beginObject();
+                while (in.hasNext()) {
+                    add(JsonToken.NAME, in.nextName());
+                    recordValue(in);
+                }
+                in.endObject();
+                add(JsonToken.END_OBJECT, 0, 0);
+                break;
+            case BEGIN_ARRAY:
+                add(JsonToken.BEGIN_ARRAY, 0, 0);
+                in.beginArray();
+                while (in.hasNext()) {
+                    recordValue(in);
+                }
+                in.endArray();
+                add(JsonToken.END_ARRAY, 0, 0);
+                break;
+            case STRING:
+            case NUMBER:
+                add(peek, in.nextString());
+                break;
+            case BOOLEAN:
+                add(JsonToken.BOOLEAN, in.nextBoolean() ? 1 : 0, 0);
+                break;
+            case NULL:
+                in.nextNull();
+                add(JsonToken.NULL, 0, 0);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected " + peek + " at " + in.getPath());
+        }
+    }
+
+    private void add(JsonToken token, String text) {
+        int length = text.length();
+        if (charCount + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + length));
+        }
+        text.getChars(0, length, chars, charCount);
+        add(token, charCount, length);
+        charCount += length;
+    }
+
+    private void add(JsonToken token, int offset, int length) {
+        if (tokenCount * 3 == tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        int i = tokenCount * 3;
+        tokens[i] = token.ordinal();
+        tokens[i + 1] = offset;
+        tokens[i + 2] = length;
+        tokenCount++;
+    }
+
+    class TapeReader extends JsonReader {
+        private int position;
+
+        TapeReader() {
+            super(UNREADABLE_READER);
+        }
+
+        public JsonToken peek() {
+            if (position == tokenCount) {
+                return JsonToken.END_DOCUMENT;
+            }
+            return TOKENS[tokens[position * 3]];
+        }
+
+        public boolean hasNext() {
+            JsonToken peek = peek();
+            return peek != JsonToken.END_OBJECT && peek != JsonToken.END_ARRAY && peek != JsonToken.END_DOCUMENT;
+        }
+
+        public void beginArray() {
+            expect(JsonToken.BEGIN_ARRAY);
+            position++;
+        }
+
+        public void endArray() {
+            expect(JsonToken.END_ARRAY);
+            position++;
+        }
+
+        public void beginObject() {
+            expect(JsonToken.BEGIN_OBJECT);
+            position++;
+        }
+
+        public void endObject() {
+            expect(JsonToken.END_OBJECT);
+            position++;
+        }
+
+        public String nextName() {
+            expect(JsonToken.NAME);
+            return text(position++);
+        }
+
+        public String nextString() {
+            JsonToken peek = peek();
+            if (peek != JsonToken.STRING && peek != JsonToken.NUMBER) {
+                throw unexpected(JsonToken.STRING);
+            }
+            return text(position++);
+        }
+
+        public boolean nextBoolean() {
+            expect(JsonToken.BOOLEAN);
+            return tokens[position++ * 3 + 1] == 1;
+        }
+
+        public void nextNull() {
+            expect(JsonToken.NULL);
+            position++;
+        }
+
+        public double nextDouble() {
+            return Double.parseDouble(nextString());
+        }
+
+        public long nextLong() {
+            JsonToken peek = peek();
+            if (peek != JsonToken.STRING && peek != JsonToken.NUMBER) {
+                throw unexpected(JsonToken.NUMBER);
+            }
+            int i = position * 3;
+            long value = parseLong(tokens[i + 1], tokens[i + 2]);
+            position++;
+            return value;
+        }
+
+        public int nextInt() {
+            long value = nextLong();
+            if (value != (int) value) {
+                throw new NumberFormatException("Expected an int but was " + value);
+            }
+            return (int) value;
+        }
+
+        public void skipValue() {
+            int depth = 0;
+            do {
+                JsonToken peek = peek();
+                if (peek == JsonToken.BEGIN_OBJECT || peek == JsonToken.BEGIN_ARRAY) {
+                    depth++;
+                } else if (peek == JsonToken.END_OBJECT || peek == JsonToken.END_ARRAY) {
+                    depth--;
+                } else if (peek == JsonToken.END_DOCUMENT) {
+                    return;
+                }
+                position++;
+            } while (depth > 0);
+        }
+
+        public void close() {
+            position = tokenCount;
+        }
+
+        public String getPath() {
+            return "$tape[" + position + "]";
+        }
+
+        public String toString() {
+            return "TapeReader at " + position + "/" + tokenCount;
+        }
+
+        private long parseLong(int offset, int length) {
+            long value = 0;
+            int i = offset;
+            int end = offset + length;
+            boolean negative = length > 0 && chars[i] == '-';
+            if (negative) {
+                i++;
+            }
+            if (i == end || length > 18) {
+                return slowParseLong(offset, length);
+            }
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c < '0' || c > '9') {
+                    return slowParseLong(offset, length);
+                }
+                value = value * 10 + (c - '0');
+            }
+            return negative ? -value : value;
+        }
+
+        // 1.0, 1e3 or more than 18 digits
+        private long slowParseLong(int offset, int length) {
+            return new BigDecimal(chars, offset, length).longValueExact();
+        }
+
+        private String text(int tokenPosition) {
+            int i = tokenPosition * 3;
+            return new String(chars, tokens[i + 1], tokens[i + 2]);
+        }
+
+        private void expect(JsonToken token) {
+            if (peek() != token) {
+                throw unexpected(token);
+            }
+        }
+
+        private IllegalStateException unexpected(JsonToken token) {
+            return new IllegalStateException("Expected " + token + " but was " + peek() + " at " + getPath());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.globsframework.json;
+
+import com.google.gson.*;
+import org.globsframework.json.annottations.IsJsonContentType;
+import org.globsframework.json.annottations.JsonAsObjectType;
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.fields.*;
+import org.globsframework.model.Glob;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/*
+Same output as JsonFieldValueVisitor but the JsonObject are build directly : no text to parse again.
+Not thread safe, the visitor keep the object in progress.
+ */
+public class JsonTreeFieldValueVisitor implements FieldValueVisitor {
+    private final JsonAsObjectElements elements = new JsonAsObjectElements(this);
+    private JsonObject current;
+
+    public JsonObject write(Glob glob, boolean withKind) {
+        JsonObject jsonObject = new JsonObject();
+        if (withKind) {
+            jsonObject.addProperty(GlobsGson.KIND_NAME, glob.getType().getName());
+        }
+        return fill(jsonObject, glob);
+    }
+
+    private JsonObject fill(JsonObject jsonObject, Glob glob) {
+        JsonObject previous = current;
+        current = jsonObject;
+        try {
+            glob.safeAccept(this);
+        } finally {
+            current = previous;
+        }
+        return jsonObject;
+    }
+
+    private JsonElement toElement(Glob glob) {
+        return glob == null ? JsonNull.INSTANCE : fill(new JsonObject(), glob);
+    }
+
+    private JsonElement toUnionElement(Glob glob) {
+        if (glob == null) {
+            return JsonNull.INSTANCE;
+        }
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.add(glob.getType().getName(), fill(new JsonObject(), glob));
+        return jsonObject;
+    }
+
+    private static JsonElement toJsonContent(String value) {
+        return value == null ? JsonNull.INSTANCE : JsonParser.parseString(value);
+    }
+
+    private static JsonElement primitive(Number value) {
+        return value == null ? JsonNull.INSTANCE : new JsonPrimitive(value);
+    }
+
+    private static JsonElement primitive(String value) {
+        return value == null ? JsonNull.INSTANCE : new JsonPrimitive(value);
+    }
+
+    private static JsonElement primitive(Boolean value) {
+        return value == null ? JsonNull.INSTANCE : new JsonPrimitive(value);
+    }
+
+    public void visitInteger(IntegerField field, Integer value) throws Exception {
+        current.add(field.getName(), primitive(value));
+    }
+
+    public void visitIntegerArray(IntegerArrayField field, int[] value) throws Exception {
+        if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (int i : value) {
+                array.add(i);
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitDouble(DoubleField field, Double value) throws Exception {
+        current.add(field.getName(), primitive(value));
+    }
+
+    public void visitDoubleArray(DoubleArrayField field, double[] value) throws Exception {
+        if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (double v : value) {
+                array.add(v);
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitBigDecimal(BigDecimalField field, BigDecimal value) throws Exception {
+        current.add(field.getName(), primitive(value));
+    }
+
+    public void visitBigDecimalArray(BigDecimalArrayField field, BigDecimal[] value) throws Exception {
+        if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (BigDecimal v : value) {
+                array.add(primitive(v));
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitString(StringField field, String value) throws Exception {
+        if (field.hasAnnotation(IsJsonContentType.UNIQUE_KEY)) {
+            current.add(field.getName(), toJsonContent(value));
+        } else {
+            current.add(field.getName(), primitive(value));
+        }
+    }
+
+    public void visitStringArray(StringArrayField field, String[] value) throws Exception {
+        if (value != null) {
+            boolean isJson = field.hasAnnotation(IsJsonContentType.UNIQUE_KEY);
+            JsonArray array = new JsonArray(value.length);
+            for (String v : value) {
+                array.add(isJson ? toJsonContent(v) : primitive(v));
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitBoolean(BooleanField field, Boolean value) throws Exception {
+        current.add(field.getName(), primitive(value));
+    }
+
+    public void visitBooleanArray(BooleanArrayField field, boolean[] value) throws Exception {
+        if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (boolean v : value) {
+                array.add(v);
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitLong(LongField field, Long value) throws Exception {
+        current.add(field.getName(), primitive(value));
+    }
+
+    public void visitLongArray(LongArrayField field, long[] value) throws Exception {
+        if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (long v : value) {
+                array.add(v);
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitDate(DateField field, LocalDate value) throws Exception {
+        current.add(field.getName(), value == null ? JsonNull.INSTANCE :
+                new JsonPrimitive(GSonUtils.getCachedDateFormatter(field).format(value)));
+    }
+
+    public void visitDateTime(DateTimeField field, ZonedDateTime value) throws Exception {
+        current.add(field.getName(), value == null ? JsonNull.INSTANCE :
+                new JsonPrimitive(GSonUtils.getCachedDateTimeFormatter(field).format(value)));
+    }
+
+    public void visitBlob(BlobField field, byte[] value) throws Exception {
+        current.add(field.getName(), value == null ? JsonNull.INSTANCE :
+                new JsonPrimitive(Base64.getEncoder().encodeToString(value)));
+    }
+
+    public void visitGlob(GlobField field, Glob value) throws Exception {
+        current.add(field.getName(), toElement(value));
+    }
+
+    public void visitGlobArray(GlobArrayField field, Glob[] value) throws Exception {
+        if (field.hasAnnotation(JsonAsObjectType.UNIQUE_KEY)) {
+            if (value == null) {
+                current.add(field.getName(), JsonNull.INSTANCE);
+                return;
+            }
+            Field fieldValueToUseAsName = JsonAsObjectElements.nameField(field);
+            JsonObject asObject = new JsonObject();
+            current.add(field.getName(), asObject);
+            JsonObject previous = current;
+            try {
+                for (Glob glob : value) {
+                    current = new JsonObject();
+                    asObject.add(JsonAsObjectElements.name(glob, fieldValueToUseAsName), current);
+                    elements.writeFields(glob, fieldValueToUseAsName);
+                }
+            } finally {
+                current = previous;
+            }
+        } else if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (Glob v : value) {
+                array.add(toElement(v));
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+
+    public void visitUnionGlob(GlobUnionField field, Glob value) throws Exception {
+        current.add(field.getName(), toUnionElement(value));
+    }
+
+    public void visitUnionGlobArray(GlobArrayUnionField field, Glob[] value) throws Exception {
+        if (value != null) {
+            JsonArray array = new JsonArray(value.length);
+            for (Glob v : value) {
+                array.add(toUnionElement(v));
+            }
+            current.add(field.getName(), array);
+        } else {
+            current.add(field.getName(), JsonNull.INSTANCE);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.globsframework.json;
+
+import org.globsframework.json.annottations.IsJsonContentType;
+import org.globsframework.json.annottations.JsonAsObjectType;
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.fields.*;
+import org.globsframework.model.Glob;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/*
+Glob to Map<String, Object> with the rules of JsonFieldValueVisitor : a nested glob is a Map, a glob array a List,
+date, dateTime and blob are the json String, an IsJsonContent field is read as Map/List (see JsonCopy.readObject).
+The arrays of values (int[], String[]...) are not copied : they are the arrays of the glob, they must not be modified.
+Not thread safe, the visitor keep the map in progress.
+ */
+public class MapFieldValueVisitor implements FieldValueVisitor {
+    private final JsonAsObjectElements elements = new JsonAsObjectElements(this);
+    private Map<String, Object> current;
+
+    public Map<String, Object> write(Glob glob, boolean withKind) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (withKind) {
+            values.put(GlobsGson.KIND_NAME, glob.getType().getName());
+        }
+        return fill(values, glob);
+    }
+
+    public List<Map<String, Object>> write(Glob[] globs, boolean withKind) {
+        List<Map<String, Object>> values = new ArrayList<>(globs.length);
+        for (Glob glob : globs) {
+            values.add(write(glob, withKind));
+        }
+        return values;
+    }
+
+    private Map<String, Object> fill(Map<String, Object> values, Glob glob) {
+        Map<String, Object> previous = current;
+        current = values;
+        try {
+            glob.safeAccept(this);
+        } finally {
+            current = previous;
+        }
+        return values;
+    }
+
+    private Map<String, Object> toMap(Glob glob) {
+        return glob == null ? null : fill(new LinkedHashMap<>(), glob);
+    }
+
+    private Map<String, Object> toUnionMap(Glob glob) {
+        return glob == null ? null : Collections.singletonMap(glob.getType().getName(), fill(new LinkedHashMap<>(), glob));
+    }
+
+    public void visitInteger(IntegerField field, Integer value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitIntegerArray(IntegerArrayField field, int[] value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitDouble(DoubleField field, Double value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitDoubleArray(DoubleArrayField field, double[] value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitBigDecimal(BigDecimalField field, BigDecimal value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitBigDecimalArray(BigDecimalArrayField field, BigDecimal[] value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitString(StringField field, String value) throws Exception {
+        if (field.hasAnnotation(IsJsonContentType.UNIQUE_KEY)) {
+            current.put(field.getName(), JsonCopy.readObject(value));
+        } else {
+            current.put(field.getName(), value);
+        }
+    }
+
+    public void visitStringArray(StringArrayField field, String[] value) throws Exception {
+        if (value != null && field.hasAnnotation(IsJsonContentType.UNIQUE_KEY)) {
+            List<Object> values = new ArrayList<>(value.length);
+            for (String v : value) {
+                values.add(JsonCopy.readObject(v));
+            }
+            current.put(field.getName(), values);
+        } else {
+            current.put(field.getName(), value);
+        }
+    }
+
+    public void visitBoolean(BooleanField field, Boolean value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitBooleanArray(BooleanArrayField field, boolean[] value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitLong(LongField field, Long value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitLongArray(LongArrayField field, long[] value) throws Exception {
+        current.put(field.getName(), value);
+    }
+
+    public void visitDate(DateField field, LocalDate value) throws Exception {
+        current.put(field.getName(), value == null ? null : GSonUtils.getCachedDateFormatter(field).format(value));
+    }
+
+    public void visitDateTime(DateTimeField field, ZonedDateTime value) throws Exception {
+        current.put(field.getName(), value == null ? null : GSonUtils.getCachedDateTimeFormatter(field).format(value));
+    }
+
+    public void visitBlob(BlobField field, byte[] value) throws Exception {
+        current.put(field.getName(), value == null ? null : Base64.getEncoder().encodeToString(value));
+    }
+
+    public void visitGlob(GlobField field, Glob value) throws Exception {
+        current.put(field.getName(), toMap(value));
+    }
+
+    public void visitGlobArray(GlobArrayField field, Glob[] value) throws Exception {
+        if (field.hasAnnotation(JsonAsObjectType.UNIQUE_KEY)) {
+            if (value == null) {
+                current.put(field.getName(), null);
+                return;
+            }
+            Field fieldValueToUseAsName = JsonAsObjectElements.nameField(field);
+            Map<String, Object> asObject = new LinkedHashMap<>();
+            current.put(field.getName(), asObject);
+            Map<String, Object> previous = current;
+            try {
+                for (Glob glob : value) {
+                    current = new LinkedHashMap<>();
+                    asObject.put(JsonAsObjectElements.name(glob, fieldValueToUseAsName), current);
+                    elements.writeFields(glob, fieldValueToUseAsName);
+                }
+            } finally {
+                current = previous;
+            }
+        } else if (value != null) {
+            List<Object> values = new ArrayList<>(value.length);
+            for (Glob v : value) {
+                values.add(toMap(v));
+            }
+            current.put(field.getName(), values);
+        } else {
+            current.put(field.getName(), null);
+        }
+    }
+
+    public void visitUnionGlob(GlobUnionField field, Glob value) throws Exception {
+        current.put(field.getName(), toUnionMap(value));
+    }
+
+    public void visitUnionGlobArray(GlobArrayUnionField field, Glob[] value) throws Exception {
+        if (value != null) {
+            List<Object> values = new ArrayList<>(value.length);
+            for (Glob v : value) {
+                values.add(toUnionMap(v));
+            }
+            current.put(field.getName(), values);
+        } else {
+            current.put(field.getName(), null);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.globsframework.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.internal.bind.JsonTreeReader;
+import org.globsframework.metamodel.GlobType;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+Load a set of json GlobType in parallel.
+The references (kind, kinds and annotations _kind) give a dependency graph, the strongly connected components
+(the recursive types) are built together by one task (one GlobTypeStreamReader as in the sequential load) and the
+components are built by wave : a wave contains the components whose dependencies are built by the previous waves.
+The globTypeResolver is called from the pool threads.
+ */
+public class ParallelGlobTypeLoader {
+    private final ForkJoinPool pool;
+    private final GlobTypeResolver globTypeResolver;
+    private final boolean ignoreUnknownAnnotation;
+    private final GlobTypeInterner interner;
+
+    public ParallelGlobTypeLoader(ForkJoinPool pool, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation) {
+        this(pool, globTypeResolver, ignoreUnknownAnnotation, null);
+    }
+
+    public ParallelGlobTypeLoader(ForkJoinPool pool, GlobTypeResolver globTypeResolver, boolean ignoreUnknownAnnotation, GlobTypeInterner interner) {
+        this.pool = pool;
+        this.globTypeResolver = globTypeResolver;
+        this.ignoreUnknownAnnotation = ignoreUnknownAnnotation;
+        this.interner = interner;
+    }
+
+    // the result is in the order of typesToRead, a type found by the globTypeResolver is not read.
+    public Map<String, GlobType> load(Map<String, JsonObject> typesToRead) {
+        Map<String, GlobType> built = new ConcurrentHashMap<>();
+        for (List<List<String>> wave : waves(typesToRead)) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(wave.size());
+            for (List<String> component : wave) {
+                tasks.add(pool.submit(() -> build(component, typesToRead, built)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+        Map<String, GlobType> result = new LinkedHashMap<>();
+        for (String name : typesToRead.keySet()) {
+            GlobType globType = globTypeResolver.find(name);
+            result.put(name, globType != null ? globType : built.get(name));
+        }
+        return result;
+    }
+
+    // a component is read by one GlobTypeStreamReader : its types reference each other as in a sequential read.
+    private void build(List<String> component, Map<String, JsonObject> typesToRead, Map<String, GlobType> built) {
+        JsonArray jsonTypes = new JsonArray(component.size());
+        for (String name : component) {
+            jsonTypes.add(typesToRead.get(name));
+        }
+        GlobTypeResolver resolver = name -> {
+            GlobType globType = globTypeResolver.find(name);
+            return globType != null ? globType : built.get(name);
+        };
+        try {
+            for (GlobType globType : new GlobTypeStreamReader(resolver, ignoreUnknownAnnotation, interner, true)
+                    .readArray(new JsonTreeReader(jsonTypes))) {
+                built.put(globType.getName(), globType);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read " + component, e);
+        }
+    }
+
+    // Tarjan : a component is found after the components it depends on, its wave is after theirs.
+    static List<List<List<String>>> waves(Map<String, JsonObject> typesToRead) {
+        Map<String, Set<String>> dependencies = dependencies(typesToRead);
+        Map<String, Integer> waveOf = new HashMap<>();
+        List<List<List<String>>> waves = new ArrayList<>();
+        for (List<String> component : stronglyConnected(dependencies)) {
+            int wave = 0;
+            for (String name : component) {
+                for (String dependency : dependencies.get(name)) {
+                    Integer dependencyWave = waveOf.get(dependency);
+                    if (dependencyWave != null) {
+                        wave = Math.max(wave, dependencyWave + 1);
+                    }
+                }
+            }
+            for (String name : component) {
+                waveOf.put(name, wave);
+            }
+            while (waves.size() <= wave) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(wave).add(component);
+        }
+        return waves;
+    }
+
+    // the recursive types are in the same component, a component is after the components it depends on.
+    public static List<List<String>> components(Map<String, JsonObject> typesToRead) {
+        return stronglyConnected(dependencies(typesToRead));
+    }
+
+    private static List<List<String>> stronglyConnected(Map<String, Set<String>> dependencies) {
+        Tarjan tarjan = new Tarjan(dependencies);
+        for (String name : dependencies.keySet()) {
+            if (!tarjan.index.containsKey(name)) {
+                tarjan.visit(name);
+            }
+        }
+        return tarjan.components;
+    }
+
+    private static Map<String, Set<String>> dependencies(Map<String, JsonObject> typesToRead) {
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+        typesToRead.forEach((name, json) -> {
+            Set<String> references = references(json);
+            references.retainAll(typesToRead.keySet());
+            dependencies.put(name, references);
+        });
+        return dependencies;
+    }
+
+    static Set<String> references(JsonObject jsonType) {
+        Set<String> references = new HashSet<>();
+        addAnnotationKinds(jsonType, references);
+        JsonElement fields = jsonType.get(GlobsGson.FIELDS);
+        if (fields instanceof JsonObject) {
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) fields).entrySet()) {
+                addFieldReferences(entry.getValue(), references);
+            }
+        } else if (fields instanceof JsonArray) {
+            for (JsonElement field : (JsonArray) fields) {
+                addFieldReferences(field, references);
+            }
+        }
+        return references;
+    }
+
+    private static void addFieldReferences(JsonElement element, Set<String> references) {
+        if (!(element instanceof JsonObject)) {
+            return;
+        }
+        JsonObject field = (JsonObject) element;
+        JsonElement kind = field.get(GlobsGson.GLOB_TYPE_KIND);
+        if (kind != null && kind.isJsonPrimitive()) {
+            references.add(kind.getAsString());
+        }
+        JsonElement kinds = field.get(GlobsGson.GLOB_UNION_KINDS);
+        if (kinds instanceof JsonArray) {
+            for (JsonElement unionKind : (JsonArray) kinds) {
+                references.add(unionKind.getAsString());
+            }
+        }
+        addAnnotationKinds(field, references);
+    }
+
+    private static void addAnnotationKinds(JsonObject jsonObject, Set<String> references) {
+        JsonElement annotations = jsonObject.get(GlobsGson.ANNOTATIONS);
+        if (annotations instanceof JsonArray) {
+            for (JsonElement annotation : (JsonArray) annotations) {
+                if (annotation instanceof JsonObject) {
+                    JsonElement kind = ((JsonObject) annotation).get(GlobsGson.KIND_NAME);
+                    if (kind != null && kind.isJsonPrimitive()) {
+                        references.add(kind.getAsString());
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Tarjan {
+        final Map<String, Set<String>> dependencies;
+        final Map<String, Integer> index = new HashMap<>();
+        final Map<String, Integer> lowLink = new HashMap<>();
+        final Deque<String> stack = new ArrayDeque<>();
+        final Set<String> onStack = new HashSet<>();
+        final List<List<String>> components = new ArrayList<>();
+
+        Tarjan(Map<String, Set<String>> dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        void visit(String name) {
+            index.put(name, index.size());
+            lowLink.put(name, index.get(name));
+            stack.push(name);
+            onStack.add(name);
+            for (String dependency : dependencies.get(name)) {
+                if (!index.containsKey(dependency)) {
+                    visit(dependency);
+                    lowLink.put(name, Math.min(lowLink.get(name), lowLink.get(dependency)));
+                } else if (onStack.contains(dependency)) {
+                    lowLink.put(name, Math.min(lowLink.get(name), index.get(dependency)));
+                }
+            }
+            if (lowLink.get(name).equals(index.get(name))) {
+                List<String> component = new ArrayList<>();
+                String member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (!member.equals(name));
+                components.add(component);
+            }
+        }
+    }
+}
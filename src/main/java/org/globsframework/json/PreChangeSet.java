@@ -4,4 +4,10 @@ import org.globsframework.model.ChangeSet;
 
 public interface PreChangeSet {
     ChangeSet resolve(GlobAccessor globAccessor);
+
+    // referenced globs are fetched with GlobAccessor.getAll by chunk of batchSize keys (at least 1).
+    // this default implementation ignore batchSize : the references are resolved by resolve(globAccessor).
+    default ChangeSet resolve(GlobAccessor globAccessor, int batchSize) {
+        return resolve(globAccessor);
+    }
 }
@@ -1,12 +1,10 @@
 package org.globsframework.json;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
+import org.globsframework.json.jfr.ChangeSetResolveEvent;
 import org.globsframework.metamodel.Field;
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.fields.GlobArrayField;
@@ -36,137 +34,332 @@ public class PreChangeSetGsonAdapter extends TypeAdapter<PreChangeSet> {
 
     public PreChangeSet read(JsonReader in) throws IOException {
         FixStateChangeSet changeSet = new DefaultFixStateChangeSet();
-        JsonParser jsonParser = new JsonParser();
         Jsonreader jsonreader = new Jsonreader();
         in.beginArray();
 
         while (in.peek() == JsonToken.BEGIN_OBJECT) {
-            JsonElement elt = jsonParser.parse(in);
-            JsonObject jsonObject = elt.getAsJsonObject();
-            String state = jsonObject.get("state").getAsString();
-            String kind = jsonObject.get("_kind").getAsString();
-            GlobType globType = resolver.get(kind);
-            JsonObject key = jsonObject.get("key").getAsJsonObject();
-            Key readKey = readKey(key, globType, globType.getKeyFields(), jsonreader);
-            switch (state) {
-                case "create":
-                    DeltaGlob valuesForCreate = changeSet.getForCreate(readKey);
-                    readValues(jsonObject.getAsJsonObject("newValue"), globType, valuesForCreate::setValue, jsonreader);
-                    break;
-                case "update":
-                    DeltaGlob values = changeSet.getForUpdate(readKey);
-                    readValues(jsonObject.getAsJsonObject("newValue"), globType, values::setValue, jsonreader);
-                    readValues(jsonObject.getAsJsonObject("oldValue"), globType, values::setPreviousValue, jsonreader);
-                    break;
-                case "delete":
-                    DeltaGlob newValues = changeSet.getForDelete(readKey);
-                    readValues(jsonObject.getAsJsonObject("oldValue"), globType, newValues::setValue, jsonreader);
-                    break;
-                default:
-                    throw new RuntimeException("'" + state + "' not expected (create/delete/update)");
-            }
+            readChange(in, changeSet, jsonreader);
         }
         in.endArray();
+        return preChangeSet(changeSet, jsonreader);
+    }
+
+    static PreChangeSet preChangeSet(FixStateChangeSet changeSet, Jsonreader jsonreader) {
         return new PreChangeSet() {
+            public ChangeSet resolve(GlobAccessor globAccessor) {
+                return resolve(globAccessor, Integer.MAX_VALUE);
+            }
+
+            public ChangeSet resolve(GlobAccessor globAccessor, int batchSize) {
+                return PreChangeSetGsonAdapter.resolve(changeSet, jsonreader, globAccessor, batchSize);
+            }
+        };
+    }
+
+    /*
+    Streaming read : the changes are read by window of lookAhead entries, the references of a window are resolved
+    (with the globs created in the same window or with the globAccessor) and the window is visited before the next one is read.
+    A reference to a glob created in a previous window is asked to the globAccessor : the visitor is expected to have applied it.
+     */
+    public long read(JsonReader in, GlobAccessor globAccessor, int lookAhead, ChangeSetVisitor visitor) throws IOException {
+        Window window = new Window(globAccessor, lookAhead, visitor);
+        in.beginArray();
+        while (in.peek() == JsonToken.BEGIN_OBJECT) {
+            readChange(in, window.changeSet, window.jsonreader);
+            window.added();
+        }
+        in.endArray();
+        window.flush();
+        return window.count;
+    }
+
+    static class Window {
+        private final GlobAccessor globAccessor;
+        private final int windowSize;
+        private final ChangeSetVisitor visitor;
+        FixStateChangeSet changeSet = new DefaultFixStateChangeSet();
+        Jsonreader jsonreader = new Jsonreader();
+        private int size;
+        long count;
+
+        Window(GlobAccessor globAccessor, int lookAhead, ChangeSetVisitor visitor) {
+            this.globAccessor = globAccessor;
+            if (lookAhead < 1) {
+                throw new IllegalArgumentException("lookAhead must be at least 1, got " + lookAhead);
+            }
+            this.windowSize = lookAhead;
+            this.visitor = visitor;
+        }
+
+        void added() {
+            count++;
+            if (++size >= windowSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (size != 0) {
+                resolve(changeSet, jsonreader, globAccessor, Integer.MAX_VALUE).safeVisit(visitor);
+                changeSet = new DefaultFixStateChangeSet();
+                jsonreader = new Jsonreader();
+                size = 0;
+            }
+        }
+    }
+
+    static ChangeSet resolve(FixStateChangeSet changeSet, Jsonreader jsonreader, GlobAccessor globAccessor, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1, got " + batchSize);
+        }
+        ChangeSetResolveEvent event = new ChangeSetResolveEvent();
+        event.begin();
+        try {
             Map<Key, Glob> local = new HashMap<>();
+            Map<Key, Glob> fetched = fetch(changeSet, jsonreader, globAccessor, batchSize);
+            jsonreader.functions.forEach(g -> g.apply(key -> {
+                Glob glob = local.get(key);
+                if (glob != null) {
+                    return glob;
+                }
+                if (changeSet.isCreated(key)) {
+                    MutableGlob instantiate = key.getGlobType().instantiate();
+                    changeSet.getNewValues(key).safeApply(instantiate::setValue);
+                    local.put(key, instantiate);
+                    return instantiate;
+                } else {
+                    return fetched.get(key);
+                }
+            }));
+            return changeSet;
+        } finally {
+            event.end(null, jsonreader.functions.size(), -1);
+        }
+    }
 
-            public ChangeSet resolve(GlobAccessor globAccessor) {
-                jsonreader.functions.forEach(g -> g.apply(key -> {
-                    Glob glob = local.get(key);
-                    if (glob != null) {
-                        return glob;
+    private static Map<Key, Glob> fetch(FixStateChangeSet changeSet, Jsonreader jsonreader, GlobAccessor globAccessor, int batchSize) {
+        List<Key> toFetch = new ArrayList<>(jsonreader.referencedKeys.size());
+        for (Key key : jsonreader.referencedKeys) {
+            if (!changeSet.isCreated(key)) {
+                toFetch.add(key);
+            }
+        }
+        Map<Key, Glob> globs = new HashMap<>();
+        int from = 0;
+        while (from < toFetch.size()) {
+            int to = (int) Math.min((long) from + batchSize, toFetch.size());
+            globs.putAll(globAccessor.getAll(toFetch.subList(from, to)));
+            from = to;
+        }
+        return globs;
+    }
+
+    // properties can come in any order : key, newValue and oldValue seen before the state and the kind are recorded
+    // in a JsonTape and read when the entry is complete.
+    void readChange(JsonReader in, FixStateChangeSet changeSet, Jsonreader jsonreader) throws IOException {
+        String state = null;
+        GlobType globType = null;
+        Key key = null;
+        DeltaGlob deltaGlob = null;
+        JsonTape pendingKey = null;
+        JsonTape pendingNewValue = null;
+        JsonTape pendingOldValue = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "state":
+                    state = in.nextString();
+                    break;
+                case GlobsGson.KIND_NAME:
+                    globType = resolver.get(in.nextString());
+                    break;
+                case "key":
+                    if (globType != null) {
+                        key = readKey(in, globType, jsonreader);
+                    } else {
+                        pendingKey = JsonTape.readValue(in);
                     }
-                    if (changeSet.isCreated(key)) {
-                        MutableGlob instantiate = key.getGlobType().instantiate();
-                        changeSet.getNewValues(key).safeApply(instantiate::setValue);
-                        local.put(key, instantiate);
-                        return instantiate;
+                    break;
+                case "newValue":
+                    if (deltaGlob != null) {
+                        readNewValues(in, state, globType, deltaGlob, jsonreader);
                     } else {
-                        return globAccessor.get(key);
+                        pendingNewValue = JsonTape.readValue(in);
                     }
-                }));
-
-                return changeSet;
+                    break;
+                case "oldValue":
+                    if (deltaGlob != null) {
+                        readOldValues(in, state, globType, deltaGlob, jsonreader);
+                    } else {
+                        pendingOldValue = JsonTape.readValue(in);
+                    }
+                    break;
+                default:
+                    in.skipValue();
             }
-        };
+            if (deltaGlob == null && state != null && globType != null) {
+                if (key == null && pendingKey != null) {
+                    key = readKey(pendingKey.reader(), globType, jsonreader);
+                    pendingKey = null;
+                }
+                if (key != null) {
+                    deltaGlob = getDeltaGlob(changeSet, state, key);
+                }
+            }
+        }
+        in.endObject();
+        if (deltaGlob == null) {
+            throw new RuntimeException("state, " + GlobsGson.KIND_NAME + " and key are expected in a change (got state: " + state +
+                    ", kind: " + (globType == null ? null : globType.getName()) + ")");
+        }
+        if (pendingNewValue != null) {
+            readNewValues(pendingNewValue.reader(), state, globType, deltaGlob, jsonreader);
+        }
+        if (pendingOldValue != null) {
+            readOldValues(pendingOldValue.reader(), state, globType, deltaGlob, jsonreader);
+        }
     }
 
-    Key readKey(JsonObject jsonObject, GlobType globType, Field[] fields, Jsonreader jsonreader) {
-        KeyBuilder keyBuilder = KeyBuilder.create(globType);
-        for (Field field : fields) {
-            JsonElement jsonElement = jsonObject.get(field.getName());
-            if (jsonElement != null && !jsonElement.isJsonNull()) {
-                field.safeVisit(jsonreader, jsonElement, keyBuilder);
-            }
+    static DeltaGlob getDeltaGlob(FixStateChangeSet changeSet, String state, Key key) {
+        switch (state) {
+            case "create":
+                return changeSet.getForCreate(key);
+            case "update":
+                return changeSet.getForUpdate(key);
+            case "delete":
+                return changeSet.getForDelete(key);
+            default:
+                throw new RuntimeException("'" + state + "' not expected (create/delete/update)");
         }
+    }
+
+    private void readNewValues(JsonReader in, String state, GlobType globType, DeltaGlob deltaGlob, Jsonreader jsonreader) throws IOException {
+        if (state.equals("delete")) {
+            in.skipValue();
+        } else {
+            readValues(in, globType, deltaGlob::setValue, jsonreader);
+        }
+    }
+
+    private void readOldValues(JsonReader in, String state, GlobType globType, DeltaGlob deltaGlob, Jsonreader jsonreader) throws IOException {
+        switch (state) {
+            case "update":
+                readValues(in, globType, deltaGlob::setPreviousValue, jsonreader);
+                break;
+            case "delete":
+                readValues(in, globType, deltaGlob::setValue, jsonreader);
+                break;
+            default:
+                in.skipValue();
+        }
+    }
+
+    static Key readKey(JsonReader in, GlobType globType, Jsonreader jsonreader) throws IOException {
+        KeyBuilder keyBuilder = KeyBuilder.create(globType);
+        jsonreader.readKeyFields(in, globType, keyBuilder);
         return keyBuilder.get();
     }
 
-    void readValues(JsonObject jsonObject, GlobType globType, FieldValueSetter values, Jsonreader jsonreader) {
-        Set<Map.Entry<String, JsonElement>> entries = jsonObject.entrySet();
-        for (Map.Entry<String, JsonElement> entry : entries) {
-            Field field = globType.findField(entry.getKey());
+    static void readValues(JsonReader in, GlobType globType, FieldValueSetter values, Jsonreader jsonreader) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        AbstractFieldSetter fieldSetter = new AbstractFieldSetter() {
+            public FieldSetter setValue(Field field1, Object value) throws ItemNotFound {
+                values.setValue(field1, value);
+                return this;
+            }
+        };
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            Field field = globType.findField(name);
             if (field == null) {
-                String message = entry.getKey() + " not found in " + globType.getName() + " got " + Arrays.toString(globType.getFields());
-                message += " from " + jsonObject;
-                throw new RuntimeException(message);
+                throw new RuntimeException(name + " not found in " + globType.getName() + " got " + Arrays.toString(globType.getFields()));
             }
-            JsonElement value = entry.getValue();
-            if (value == null || value.isJsonNull()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
                 values.setValue(field, null);
             } else {
-                field.safeVisit(jsonreader, value, new AbstractFieldSetter() {
-                    public FieldSetter setValue(Field field1, Object value) throws ItemNotFound {
-                        values.setValue(field1, value);
-                        return this;
-                    }
-                });
+                field.safeVisit(jsonreader, fieldSetter, in);
             }
         }
+        in.endObject();
     }
 
     interface FieldValueSetter {
         void setValue(Field field, Object value);
     }
 
-    static class Jsonreader extends GSonVisitor {
+    // glob values in a changeSet are references : only the key is read, the glob is set when the PreChangeSet is resolved.
+    static class Jsonreader extends ReadJsonWithReaderFieldVisitor {
 
         List<Function<GlobAccessor, Void>> functions = new ArrayList<>();
+        Set<Key> referencedKeys = new LinkedHashSet<>();
 
-
-        Glob readGlob(JsonObject jsonObject, GlobType globType) {
+        public Glob readField(JsonReader jsonReader, GlobType type) {
             throw new RuntimeException("Bug a glob should not be created in a changeSet");
-//            Field[] keyFields = globType.getKeyFields();
-//            KeyBuilder keyBuilder = KeyBuilder.create(globType);
-//            if (keyFields.length != 0) {
-//                for (Field keyField : keyFields) {
-//                    keyField.safeVisit(this, jsonObject.get(keyField.getName()), keyBuilder);
-//                }
-//                return globAccessor.get(keyBuilder.get());
-//            } else {
-//                return readGlob(jsonObject, globType);
-//            }
-        }
-
-        Key readKey(JsonObject jsonObject, GlobType globType) {
+        }
+
+        void readKeyFields(JsonReader in, GlobType globType, FieldSetter keyBuilder) throws IOException {
+            in.beginObject();
+            while (in.hasNext()) {
+                Field field = globType.findField(in.nextName());
+                if (field != null && field.isKeyField() && in.peek() != JsonToken.NULL) {
+                    field.safeVisit(this, keyBuilder, in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+
+        Key readKey(JsonReader in, GlobType globType) throws IOException {
             Field[] keyFields = globType.getKeyFields();
+            if (keyFields.length == 0) {
+                throw new RuntimeException("Only object with key are expected " + globType.getName());
+            }
             KeyBuilder keyBuilder = KeyBuilder.create(globType);
-            if (keyFields.length != 0) {
-                for (Field keyField : keyFields) {
-                    keyField.safeVisit(this, jsonObject.get(keyField.getName()), keyBuilder);
+            readKeyFields(in, globType, keyBuilder);
+            Key key = keyBuilder.get();
+            referencedKeys.add(key);
+            return key;
+        }
+
+        // {"typeName": {key fields}}
+        Key readUnionKey(JsonReader in, Collection<GlobType> targetTypes, Field field) throws IOException {
+            Key key = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                GlobType type = findType(targetTypes, name);
+                if (type == null) {
+                    throw new RuntimeException("For " + field.getFullName() + " one of " + targetTypes + " is expected got " + name);
+                }
+                key = readKey(in, type);
+            }
+            in.endObject();
+            return key;
+        }
+
+        private static GlobType findType(Collection<GlobType> targetTypes, String name) {
+            for (GlobType targetType : targetTypes) {
+                if (targetType.getName().equals(name)) {
+                    return targetType;
                 }
-                return keyBuilder.get();
-            } else {
-                throw new RuntimeException("Only object with key are expected " + globType.getName());
             }
+            return null;
         }
 
-        public void visitGlobArray(GlobArrayField field, JsonElement element, FieldSetter fieldSetter) throws Exception {
+        public void visitGlobArray(GlobArrayField field, FieldSetter fieldSetter, JsonReader jsonReader) throws Exception {
             List<Key> keys = new ArrayList<>();
-            for (JsonElement jsonElement : element.getAsJsonArray()) {
-                Key key = readKey(jsonElement.getAsJsonObject(), field.getTargetType());
-                keys.add(key);
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                keys.add(readKey(jsonReader, field.getTargetType()));
             }
+            jsonReader.endArray();
             functions.add(new Function<GlobAccessor, Void>() {
                 public Void apply(GlobAccessor globAccessor) {
                     Glob[] values = new Glob[keys.size()];
@@ -180,30 +373,26 @@ public class PreChangeSetGsonAdapter extends TypeAdapter<PreChangeSet> {
             });
         }
 
-        public void visitUnionGlob(GlobUnionField field, JsonElement element, FieldSetter fieldSetter) throws Exception {
-            for (GlobType type : field.getTargetTypes()) {
-                JsonElement jsonElement = element.getAsJsonObject().get(type.getName());
-                if (jsonElement != null) {
-                    Key key = readKey(element.getAsJsonObject(), type);
-                    functions.add(globAccessor -> {
-                        fieldSetter.set(field, globAccessor.get(key));
-                        return null;
-                    });
-                }
+        public void visitUnionGlob(GlobUnionField field, FieldSetter fieldSetter, JsonReader jsonReader) throws Exception {
+            Key key = readUnionKey(jsonReader, field.getTargetTypes(), field);
+            if (key != null) {
+                functions.add(globAccessor -> {
+                    fieldSetter.set(field, globAccessor.get(key));
+                    return null;
+                });
             }
         }
 
-        public void visitUnionGlobArray(GlobArrayUnionField field, JsonElement element, FieldSetter fieldSetter) throws Exception {
+        public void visitUnionGlobArray(GlobArrayUnionField field, FieldSetter fieldSetter, JsonReader jsonReader) throws Exception {
             List<Key> keys = new ArrayList<>();
-            for (JsonElement arrayElements : element.getAsJsonArray()) {
-                for (GlobType type : field.getTargetTypes()) {
-                    JsonElement jsonElement = arrayElements.getAsJsonObject().get(type.getName());
-                    if (jsonElement != null) {
-                        Key key = readKey(element.getAsJsonObject(), type);
-                        keys.add(key);
-                    }
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                Key key = readUnionKey(jsonReader, field.getTargetTypes(), field);
+                if (key != null) {
+                    keys.add(key);
                 }
             }
+            jsonReader.endArray();
             functions.add(globAccessor -> {
                 Glob[] values = new Glob[keys.size()];
                 int i = 0;
@@ -215,8 +404,8 @@ public class PreChangeSetGsonAdapter extends TypeAdapter<PreChangeSet> {
             });
         }
 
-        public void visitGlob(GlobField field, JsonElement element, FieldSetter fieldSetter) throws Exception {
-            Key key = readKey(element.getAsJsonObject(), field.getTargetType());
+        public void visitGlob(GlobField field, FieldSetter fieldSetter, JsonReader jsonReader) throws Exception {
+            Key key = readKey(jsonReader, field.getTargetType());
             functions.add(globAccessor -> {
                 fieldSetter.set(field, globAccessor.get(key));
                 return null;
@@ -224,5 +413,3 @@ public class PreChangeSetGsonAdapter extends TypeAdapter<PreChangeSet> {
         }
     }
 }
-
-
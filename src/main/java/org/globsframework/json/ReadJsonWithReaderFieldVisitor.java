@@ -1,12 +1,9 @@
 package org.globsframework.json;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import org.globsframework.json.annottations.IsJsonContentType;
 import org.globsframework.json.annottations.JsonAsObjectType;
-import org.globsframework.json.annottations.JsonValueAsFieldType;
 import org.globsframework.metamodel.Field;
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.fields.*;
@@ -23,10 +20,19 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.List;
 
 public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContext<FieldSetter, JsonReader> {
+    private final GlobArrayIndexes indexes;
+
+    public ReadJsonWithReaderFieldVisitor() {
+        this(null);
+    }
+
+    // if indexes is not null, an index is build for each JsonAsObject glob array read.
+    public ReadJsonWithReaderFieldVisitor(GlobArrayIndexes indexes) {
+        this.indexes = indexes;
+    }
 
     public void visitInteger(IntegerField field, FieldSetter mutableGlob, JsonReader jsonReader) throws Exception {
         mutableGlob.set(field, jsonReader.nextInt());
@@ -66,16 +72,7 @@ public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContex
 
     public void visitString(StringField field, FieldSetter mutableGlob, JsonReader jsonReader) throws Exception {
         if (field.hasAnnotation(IsJsonContentType.UNIQUE_KEY)) {
-            JsonElement parse = JsonParser.parseReader(jsonReader);
-            if (parse.isJsonArray()) {
-                mutableGlob.set(field, GlobGSonDeserializer.GSON.toJson(parse.getAsJsonArray()));
-            } else if (parse.isJsonObject()) {
-                mutableGlob.set(field, GlobGSonDeserializer.GSON.toJson(parse.getAsJsonObject()));
-            } else if (parse.isJsonPrimitive()) {
-                mutableGlob.set(field, GlobGSonDeserializer.GSON.toJson(parse.getAsJsonPrimitive()));
-            } else {
-                throw new RuntimeException(parse.toString() + " not managed in " + field.getFullName());
-            }
+            mutableGlob.set(field, JsonCopy.readValue(jsonReader));
         } else {
             JsonToken peek = jsonReader.peek();
             switch (peek) {
@@ -88,6 +85,13 @@ public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContex
                 case BOOLEAN:
                     mutableGlob.set(field, Boolean.toString(jsonReader.nextBoolean()));
                     break;
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    // only on a replayed tape : the tree path it replaces accepted an object or an array as json text.
+                    if (jsonReader instanceof JsonTape.TapeReader) {
+                        mutableGlob.set(field, JsonCopy.readValue(jsonReader));
+                    }
+                    break;
             }
         }
     }
@@ -101,17 +105,7 @@ public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContex
                 values = Arrays.copyOf(values, values.length * 2);
             }
             if (field.hasAnnotation(IsJsonContentType.UNIQUE_KEY)) {
-                JsonParser jsonParser = new JsonParser();
-                JsonElement parse = jsonParser.parse(jsonReader);
-                if (parse.isJsonArray()) {
-                    values[count++] = GlobGSonDeserializer.GSON.toJson(parse.getAsJsonArray());
-                } else if (parse.isJsonObject()) {
-                    values[count++] = GlobGSonDeserializer.GSON.toJson(parse.getAsJsonObject());
-                } else if (parse.isJsonPrimitive()) {
-                    values[count++] = GlobGSonDeserializer.GSON.toJson(parse.getAsJsonPrimitive());
-                } else {
-                    throw new RuntimeException(parse + " not managed in " + field.getFullName());
-                }
+                values[count++] = JsonCopy.readValue(jsonReader);
             } else {
                 values[count++] = jsonReader.nextString();
             }
@@ -202,7 +196,7 @@ public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContex
     }
 
     public void visitBlob(BlobField field, FieldSetter mutableGlob, JsonReader jsonReader) throws Exception {
-        mutableGlob.set(field, Base64.getDecoder().decode(jsonReader.nextString()));
+        mutableGlob.set(field, Base64Chunks.decode(jsonReader.nextString()));
     }
 
     public void visitGlob(GlobField field, FieldSetter mutableGlob, JsonReader jsonReader) throws Exception {
@@ -212,29 +206,25 @@ public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContex
     }
 
     public Glob readField(JsonReader jsonReader, GlobType type) throws IOException {
-        return GlobGSonDeserializer.readFields(jsonReader, type);
+        return GlobGSonDeserializer.readFields(jsonReader, type, this);
     }
 
     public void visitGlobArray(GlobArrayField field, FieldSetter mutableGlob, JsonReader jsonReader) throws Exception {
         GlobType targetType = field.getTargetType();
         List<Glob> objs = new ArrayList<>();
+        Field fieldValueToUseAsName = null;
         if (field.hasAnnotation(JsonAsObjectType.UNIQUE_KEY)) {
-            Field fieldValueToUseAsName = targetType.findFieldWithAnnotation(JsonValueAsFieldType.UNIQUE_KEY);
-            if (fieldValueToUseAsName == null) {
-                throw new RuntimeException("A field with " + JsonValueAsFieldType.TYPE.getName() + " annotation is expected after " +
-                        JsonAsObjectType.TYPE.getName());
-            }
-            StringField typedFieldToUseAsName = fieldValueToUseAsName.asStringField();
+            fieldValueToUseAsName = JsonAsObjectElements.nameField(field);
             jsonReader.beginObject();
             while (jsonReader.peek() != JsonToken.END_OBJECT) {
                 MutableGlob newObj = targetType.instantiate();
-                String value = jsonReader.nextName();
-                newObj.set(typedFieldToUseAsName, value);
+                setName(fieldValueToUseAsName, newObj, jsonReader.nextName());
                 jsonReader.beginObject();
-                GlobGSonDeserializer.read(jsonReader, targetType, newObj);
+                GlobGSonDeserializer.read(jsonReader, targetType, newObj, this);
                 jsonReader.endObject();
                 objs.add(newObj);
             }
+            jsonReader.endObject();
         }
         else {
             jsonReader.beginArray();
@@ -245,7 +235,21 @@ public class ReadJsonWithReaderFieldVisitor implements FieldVisitorWithTwoContex
             }
             jsonReader.endArray();
         }
-        mutableGlob.set(field, objs.toArray(new Glob[0]));
+        Glob[] values = objs.toArray(new Glob[0]);
+        if (indexes != null && fieldValueToUseAsName != null) {
+            indexes.add(values, new GlobArrayIndex(fieldValueToUseAsName, values));
+        }
+        mutableGlob.set(field, values);
+    }
+
+    static void setName(Field field, MutableGlob glob, String name) {
+        if (field instanceof IntegerField) {
+            glob.set((IntegerField) field, Integer.parseInt(name));
+        } else if (field instanceof LongField) {
+            glob.set((LongField) field, Long.parseLong(name));
+        } else {
+            glob.set(field.asStringField(), name);
+        }
     }
 
     public void visitUnionGlob(GlobUnionField field, FieldSetter mutableGlob, JsonReader jsonReader) throws Exception {
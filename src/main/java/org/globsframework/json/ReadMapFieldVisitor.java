@@ -0,0 +1,300 @@
+package org.globsframework.json;
+
+import org.globsframework.json.annottations.JsonAsObjectType;
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.metamodel.fields.*;
+import org.globsframework.model.FieldSetter;
+import org.globsframework.model.Glob;
+import org.globsframework.model.MutableGlob;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/*
+Map<String, Object> to Glob : the reverse of MapFieldValueVisitor, with the rules of ReadJsonWithReaderFieldVisitor.
+An array can be given as the java array or as a List, a date as the json String or as the java value,
+a nested glob as a Map or as a Glob. The null values are ignored.
+ */
+public class ReadMapFieldVisitor implements FieldVisitorWithTwoContext<FieldSetter, Object> {
+    public static final ReadMapFieldVisitor INSTANCE = new ReadMapFieldVisitor();
+
+    public static MutableGlob readGlob(Map<String, ?> values, GlobType globType) {
+        MutableGlob instantiate = globType.instantiate();
+        for (Field field : globType.getFields()) {
+            Object value = values.get(field.getName());
+            if (value != null) {
+                field.safeVisit(INSTANCE, instantiate, value);
+            }
+        }
+        return instantiate;
+    }
+
+    public static Glob readGlob(Map<String, ?> values, GlobTypeResolver resolver) {
+        Object kind = values.get(GlobsGson.KIND_NAME);
+        if (kind == null) {
+            throw new RuntimeException(GlobsGson.KIND_NAME + " not found in " + values.keySet());
+        }
+        return readGlob(values, resolver.get(kind.toString()));
+    }
+
+    private static Glob toGlob(Object value, GlobType globType) {
+        if (value == null || value instanceof Glob) {
+            return (Glob) value;
+        }
+        return readGlob(asMap(value), globType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> asMap(Object value) {
+        if (value instanceof Map) {
+            return (Map<String, ?>) value;
+        }
+        throw new RuntimeException("A Map is expected got " + value.getClass().getName());
+    }
+
+    private static List<?> asList(Object value) {
+        if (value instanceof List) {
+            return (List<?>) value;
+        }
+        if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        }
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        }
+        throw new RuntimeException("A List or an array is expected got " + value.getClass().getName());
+    }
+
+    private static Number asNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    public void visitInteger(IntegerField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, asNumber(value).intValue());
+    }
+
+    public void visitIntegerArray(IntegerArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof int[]) {
+            fieldSetter.set(field, (int[]) value);
+            return;
+        }
+        List<?> list = asList(value);
+        int[] values = new int[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = asNumber(list.get(i)).intValue();
+        }
+        fieldSetter.set(field, values);
+    }
+
+    public void visitDouble(DoubleField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, asNumber(value).doubleValue());
+    }
+
+    public void visitDoubleArray(DoubleArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof double[]) {
+            fieldSetter.set(field, (double[]) value);
+            return;
+        }
+        List<?> list = asList(value);
+        double[] values = new double[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = asNumber(list.get(i)).doubleValue();
+        }
+        fieldSetter.set(field, values);
+    }
+
+    private static BigDecimal asBigDecimal(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    public void visitBigDecimal(BigDecimalField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, asBigDecimal(value));
+    }
+
+    public void visitBigDecimalArray(BigDecimalArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof BigDecimal[]) {
+            fieldSetter.set(field, (BigDecimal[]) value);
+            return;
+        }
+        List<?> list = asList(value);
+        BigDecimal[] values = new BigDecimal[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = asBigDecimal(list.get(i));
+        }
+        fieldSetter.set(field, values);
+    }
+
+    // an IsJsonContent value read by MapFieldValueVisitor is a Map or a List : it is written back to json.
+    private static String asString(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Map || value instanceof Collection || value instanceof Object[]) {
+            return JsonCopy.toJson(value);
+        }
+        return value.toString();
+    }
+
+    public void visitString(StringField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, asString(value));
+    }
+
+    public void visitStringArray(StringArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof String[]) {
+            fieldSetter.set(field, (String[]) value);
+            return;
+        }
+        List<?> list = asList(value);
+        String[] values = new String[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = asString(list.get(i));
+        }
+        fieldSetter.set(field, values);
+    }
+
+    private static boolean asBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return Boolean.parseBoolean(value.toString());
+    }
+
+    public void visitBoolean(BooleanField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, asBoolean(value));
+    }
+
+    public void visitBooleanArray(BooleanArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof boolean[]) {
+            fieldSetter.set(field, (boolean[]) value);
+            return;
+        }
+        List<?> list = asList(value);
+        boolean[] values = new boolean[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = asBoolean(list.get(i));
+        }
+        fieldSetter.set(field, values);
+    }
+
+    public void visitLong(LongField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, asNumber(value).longValue());
+    }
+
+    public void visitLongArray(LongArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof long[]) {
+            fieldSetter.set(field, (long[]) value);
+            return;
+        }
+        List<?> list = asList(value);
+        long[] values = new long[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = asNumber(list.get(i)).longValue();
+        }
+        fieldSetter.set(field, values);
+    }
+
+    public void visitDate(DateField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof LocalDate) {
+            fieldSetter.set(field, (LocalDate) value);
+            return;
+        }
+        DateTimeFormatter dateConverter = GSonUtils.getCachedDateFormatter(field);
+        fieldSetter.set(field, LocalDate.from(dateConverter.parse(value.toString())));
+    }
+
+    public void visitDateTime(DateTimeField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof ZonedDateTime) {
+            fieldSetter.set(field, (ZonedDateTime) value);
+            return;
+        }
+        DateTimeFormatter dateConverter = GSonUtils.getCachedDateTimeFormatter(field);
+        String text = value.toString();
+        if (field.hasAnnotation(JsonDateTimeFormatType.UNIQUE_KEY)) {
+            Glob annotation = field.getAnnotation(JsonDateTimeFormatType.UNIQUE_KEY);
+            String nullValue = annotation.get(JsonDateTimeFormatType.NULL_VALUE);
+            if (text.equals(nullValue) || "".equals(text)) {
+                return;
+            }
+            Boolean aBoolean = annotation.get(JsonDateTimeFormatType.AS_LOCAL);
+            if (aBoolean) {
+                fieldSetter.set(field, ZonedDateTime.of(LocalDateTime.from(dateConverter.parse(text)), ZoneId.systemDefault()));
+                return;
+            }
+        }
+        fieldSetter.set(field, ZonedDateTime.from(dateConverter.parse(text)));
+    }
+
+    public void visitBlob(BlobField field, FieldSetter fieldSetter, Object value) throws Exception {
+        if (value instanceof byte[]) {
+            fieldSetter.set(field, (byte[]) value);
+            return;
+        }
+        fieldSetter.set(field, Base64Chunks.decode(value.toString()));
+    }
+
+    public void visitGlob(GlobField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, toGlob(value, field.getTargetType()));
+    }
+
+    public void visitGlobArray(GlobArrayField field, FieldSetter fieldSetter, Object value) throws Exception {
+        GlobType targetType = field.getTargetType();
+        if (field.hasAnnotation(JsonAsObjectType.UNIQUE_KEY) && value instanceof Map) {
+            Field fieldValueToUseAsName = JsonAsObjectElements.nameField(field);
+            Map<String, ?> map = asMap(value);
+            Glob[] values = new Glob[map.size()];
+            int i = 0;
+            for (Map.Entry<String, ?> entry : map.entrySet()) {
+                MutableGlob glob = readGlob(asMap(entry.getValue()), targetType);
+                ReadJsonWithReaderFieldVisitor.setName(fieldValueToUseAsName, glob, entry.getKey());
+                values[i++] = glob;
+            }
+            fieldSetter.set(field, values);
+            return;
+        }
+        List<?> list = asList(value);
+        Glob[] values = new Glob[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = toGlob(list.get(i), targetType);
+        }
+        fieldSetter.set(field, values);
+    }
+
+    private static Glob readUnion(Collection<GlobType> types, Object value, Field field) {
+        if (value == null || value instanceof Glob) {
+            return (Glob) value;
+        }
+        Map<String, ?> map = asMap(value);
+        for (GlobType type : types) {
+            Object inner = map.get(type.getName());
+            if (inner != null) {
+                return toGlob(inner, type);
+            }
+        }
+        throw new RuntimeException("For " + field.getFullName() + " one of " + types + " is expected got : " + map.keySet());
+    }
+
+    public void visitUnionGlob(GlobUnionField field, FieldSetter fieldSetter, Object value) throws Exception {
+        fieldSetter.set(field, readUnion(field.getTargetTypes(), value, field));
+    }
+
+    public void visitUnionGlobArray(GlobArrayUnionField field, FieldSetter fieldSetter, Object value) throws Exception {
+        List<?> list = asList(value);
+        Glob[] values = new Glob[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readUnion(field.getTargetTypes(), list.get(i), field);
+        }
+        fieldSetter.set(field, values);
+    }
+}
@@ -0,0 +1,26 @@
+package org.globsframework.json.helper;
+
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.metamodel.annotations.KeyField;
+import org.globsframework.metamodel.fields.LongField;
+import org.globsframework.metamodel.fields.StringField;
+
+public class JsonFieldSizeType {
+    public static GlobType TYPE;
+
+    @KeyField
+    public static StringField PATH;
+
+    public static LongField COUNT;
+
+    public static LongField TOTAL_BYTES;
+
+    public static LongField MIN_BYTES;
+
+    public static LongField MAX_BYTES;
+
+    static {
+        GlobTypeLoaderFactory.create(JsonFieldSizeType.class, "jsonFieldSize").load();
+    }
+}
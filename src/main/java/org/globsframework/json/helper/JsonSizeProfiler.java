@@ -0,0 +1,220 @@
+package org.globsframework.json.helper;
+
+import com.google.gson.stream.JsonWriter;
+import org.globsframework.json.GSonUtils;
+import org.globsframework.json.GlobsGson;
+import org.globsframework.json.JsonFieldValueVisitor;
+import org.globsframework.metamodel.Field;
+import org.globsframework.metamodel.fields.AbstractFieldValueVisitor;
+import org.globsframework.metamodel.fields.GlobArrayUnionField;
+import org.globsframework.metamodel.fields.GlobUnionField;
+import org.globsframework.model.Glob;
+import org.globsframework.model.MutableGlob;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Count the utf-8 bytes each field contribute to the json (comma, name and value).
+Sizes are aggregated by path : the root type name followed by the field names, with the
+concrete type name added after a union field (order.lines.product.name, order.payment.card.number)
+The root path (the type name) count the whole message.
+ */
+public class JsonSizeProfiler {
+    private final Map<String, FieldSize> sizes = new ConcurrentHashMap<>();
+
+    public String encode(Glob glob, boolean withKind) {
+        StringBuilder stringBuilder = new StringBuilder();
+        encode(new GSonUtils.StringWriterToBuilder(stringBuilder), glob, withKind);
+        return stringBuilder.toString();
+    }
+
+    public void record(Glob glob, boolean withKind) {
+        encode(null, glob, withKind);
+    }
+
+    public void encode(Writer out, Glob glob, boolean withKind) {
+        ByteCountWriter counter = new ByteCountWriter(out);
+        String typeName = glob.getType().getName();
+        try {
+            JsonWriter jsonWriter = new JsonWriter(counter);
+            jsonWriter.beginObject();
+            if (withKind) {
+                long start = counter.count;
+                jsonWriter.name(GlobsGson.KIND_NAME).value(typeName);
+                add(typeName + "." + GlobsGson.KIND_NAME, counter.count - start);
+            }
+            glob.safeAccept(new ProfilingVisitor(jsonWriter, counter, typeName));
+            jsonWriter.endObject();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        add(typeName, counter.count);
+    }
+
+    public void reset() {
+        sizes.clear();
+    }
+
+    public Glob[] toGlobs() {
+        return sizes.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> entry.getValue().toGlob(entry.getKey()))
+                .toArray(Glob[]::new);
+    }
+
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-60s %10s %14s %10s %10s %10s%n", "path", "count", "total", "avg", "min", "max"));
+        sizes.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, FieldSize> e) -> e.getValue().total).reversed())
+                .forEach(entry -> {
+                    FieldSize size = entry.getValue();
+                    synchronized (size) {
+                        builder.append(String.format("%-60s %10d %14d %10d %10d %10d%n", entry.getKey(), size.count, size.total,
+                                size.total / size.count, size.min, size.max));
+                    }
+                });
+        return builder.toString();
+    }
+
+    private void add(String path, long bytes) {
+        sizes.computeIfAbsent(path, s -> new FieldSize()).add(bytes);
+    }
+
+    private static class FieldSize {
+        long count;
+        long total;
+        long min = Long.MAX_VALUE;
+        long max;
+
+        synchronized void add(long bytes) {
+            count++;
+            total += bytes;
+            min = Math.min(min, bytes);
+            max = Math.max(max, bytes);
+        }
+
+        synchronized MutableGlob toGlob(String path) {
+            return JsonFieldSizeType.TYPE.instantiate()
+                    .set(JsonFieldSizeType.PATH, path)
+                    .set(JsonFieldSizeType.COUNT, count)
+                    .set(JsonFieldSizeType.TOTAL_BYTES, total)
+                    .set(JsonFieldSizeType.MIN_BYTES, min)
+                    .set(JsonFieldSizeType.MAX_BYTES, max);
+        }
+    }
+
+    private class ProfilingVisitor extends AbstractFieldValueVisitor {
+        private final ByteCountWriter counter;
+        private final JsonFieldValueVisitor jsonFieldValueVisitor;
+        private String prefix;
+        private Field skipped;
+        private Field currentField;
+        private String currentPath;
+
+        ProfilingVisitor(JsonWriter jsonWriter, ByteCountWriter counter, String prefix) {
+            this.counter = counter;
+            this.prefix = prefix;
+            this.jsonFieldValueVisitor = new JsonFieldValueVisitor(jsonWriter) {
+                public void addGlobAttributes(Glob v) {
+                    ProfilingVisitor.this.addGlobAttributes(v, null);
+                }
+
+                public void addGlobAttributes(Glob v, Field skipped) {
+                    ProfilingVisitor.this.addGlobAttributes(v, skipped);
+                }
+            };
+        }
+
+        public void notManaged(Field field, Object value) throws Exception {
+            if (field == skipped) {
+                return;
+            }
+            Field previousField = currentField;
+            String previousPath = currentPath;
+            currentField = field;
+            currentPath = prefix + "." + field.getName();
+            long start = counter.count;
+            field.safeVisit(jsonFieldValueVisitor, value);
+            add(currentPath, counter.count - start);
+            currentField = previousField;
+            currentPath = previousPath;
+        }
+
+        // skipped is the JsonValueAsField field of a JsonAsObject array element, written as the object name.
+        void addGlobAttributes(Glob v, Field skipped) {
+            String previousPrefix = prefix;
+            Field previousSkipped = this.skipped;
+            if (currentField instanceof GlobUnionField || currentField instanceof GlobArrayUnionField) {
+                prefix = currentPath + "." + v.getType().getName();
+            } else {
+                prefix = currentPath;
+            }
+            this.skipped = skipped;
+            v.safeAccept(this);
+            this.skipped = previousSkipped;
+            prefix = previousPrefix;
+        }
+    }
+
+    private static class ByteCountWriter extends Writer {
+        private final Writer writer;
+        long count;
+
+        ByteCountWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        public void write(int c) throws IOException {
+            count += utf8Length((char) c);
+            if (writer != null) {
+                writer.write(c);
+            }
+        }
+
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                count += utf8Length(cbuf[i]);
+            }
+            if (writer != null) {
+                writer.write(cbuf, off, len);
+            }
+        }
+
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                count += utf8Length(str.charAt(i));
+            }
+            if (writer != null) {
+                writer.write(str, off, len);
+            }
+        }
+
+        // a surrogate pair is 4 bytes in utf-8 : 2 for each half
+        private static int utf8Length(char c) {
+            if (c < 0x80) {
+                return 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                return 2;
+            } else {
+                return 3;
+            }
+        }
+
+        public void flush() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.globsframework.json.helper;
+
+import com.google.gson.JsonParser;
+import org.globsframework.json.GSonUtils;
+import org.globsframework.json.GlobTypeResolver;
+import org.globsframework.json.GlobsGson;
+import org.globsframework.metamodel.GlobType;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+Catalog of GlobType (an array of GlobType or one GlobType, as read by LoadingGlobTypeResolver) where only the
+kind and the position of each type is read at startup : a type is parsed the first time it is asked
+(and the types it references through find).
+ */
+public class LazyGlobTypeCatalog implements GlobTypeResolver {
+    private final GlobTypeAccessor globTypeAccessor;
+    private final char[] chars;
+    private final Map<String, int[]> positions;
+    private final Map<String, GlobType> created = new ConcurrentHashMap<>();
+    // the types being parsed (under the catalog lock) : a type that reference a type being parsed get its unCompleteType.
+    private final Map<String, GlobType> typesInProgress = new HashMap<>();
+
+    private LazyGlobTypeCatalog(GlobTypeAccessor globTypeAccessor, char[] chars, Map<String, int[]> positions) {
+        this.globTypeAccessor = globTypeAccessor;
+        this.chars = chars;
+        this.positions = positions;
+    }
+
+    public static LazyGlobTypeCatalog index(Reader reader, GlobTypeAccessor globTypeAccessor) {
+        char[] chars = readAll(reader);
+        return new LazyGlobTypeCatalog(globTypeAccessor, chars, index(chars));
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    public int getLoadedCount() {
+        return created.size();
+    }
+
+    public GlobType find(String name) {
+        GlobType globType = created.get(name);
+        if (globType != null) {
+            return globType;
+        }
+        return load(name);
+    }
+
+    // same as LoadingGlobTypeResolver : all the types of the catalog.
+    public Collection<GlobType> loadAll() {
+        List<GlobType> types = new ArrayList<>();
+        for (String name : positions.keySet()) {
+            types.add(get(name));
+        }
+        return types;
+    }
+
+    private synchronized GlobType load(String name) {
+        GlobType globType = created.get(name);
+        if (globType != null) {
+            return globType;
+        }
+        globType = typesInProgress.get(name);
+        if (globType != null) {
+            return globType;
+        }
+        globType = globTypeAccessor.find(name);
+        if (globType != null) {
+            return globType;
+        }
+        int[] position = positions.get(name);
+        if (position == null) {
+            return null;
+        }
+        globType = GSonUtils.decodeGlobType(new CharArrayReader(chars, position[0], position[1] - position[0]), this, false, typesInProgress);
+        created.put(name, globType);
+        return globType;
+    }
+
+    private static char[] readAll(Reader reader) {
+        try {
+            char[] buffer = new char[8 * 1024];
+            int length = 0;
+            int read;
+            while ((read = reader.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read catalog", e);
+        }
+    }
+
+    /*
+    one pass on the chars : the strings are skipped, the depth of the types objects is 1 for a single type and 2 in an array.
+    a string followed by ':' at the depth of a type is a property name, the value of the "kind" property is kept.
+     */
+    static Map<String, int[]> index(char[] chars) {
+        Map<String, int[]> positions = new LinkedHashMap<>();
+        int typeDepth = -1;
+        int depth = 0;
+        int start = -1;
+        String kind = null;
+        int i = 0;
+        while (i < chars.length) {
+            char c = chars[i];
+            switch (c) {
+                case '"': {
+                    int end = skipString(chars, i);
+                    if (depth == typeDepth) {
+                        int next = skipWhiteSpace(chars, end);
+                        if (next < chars.length && chars[next] == ':' && isKind(chars, i, end)) {
+                            int valueStart = skipWhiteSpace(chars, next + 1);
+                            if (valueStart < chars.length && chars[valueStart] == '"') {
+                                end = skipString(chars, valueStart);
+                                kind = unquote(chars, valueStart, end);
+                            }
+                        }
+                    }
+                    i = end;
+                    continue;
+                }
+                case '[':
+                case '{':
+                    if (typeDepth == -1) {
+                        typeDepth = c == '[' ? 2 : 1;
+                    }
+                    depth++;
+                    if (depth == typeDepth && c == '{') {
+                        start = i;
+                        kind = null;
+                    }
+                    break;
+                case ']':
+                case '}':
+                    if (depth == typeDepth && c == '}') {
+                        if (kind == null) {
+                            throw new RuntimeException("Missing " + GlobsGson.GLOB_TYPE_KIND + " in " + new String(chars, start, i + 1 - start));
+                        }
+                        positions.put(kind, new int[]{start, i + 1});
+                    }
+                    depth--;
+                    break;
+            }
+            i++;
+        }
+        return positions;
+    }
+
+    // return the index after the closing quote
+    private static int skipString(char[] chars, int quote) {
+        int i = quote + 1;
+        while (i < chars.length) {
+            char c = chars[i];
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw new RuntimeException("Unterminated string at " + quote);
+    }
+
+    private static int skipWhiteSpace(char[] chars, int i) {
+        while (i < chars.length && Character.isWhitespace(chars[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isKind(char[] chars, int start, int end) {
+        String kind = GlobsGson.GLOB_TYPE_KIND;
+        if (end - start - 2 != kind.length()) {
+            return false;
+        }
+        for (int i = 0; i < kind.length(); i++) {
+            if (chars[start + 1 + i] != kind.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String unquote(char[] chars, int start, int end) {
+        for (int i = start + 1; i < end - 1; i++) {
+            if (chars[i] == '\\') {
+                return JsonParser.parseString(new String(chars, start, end - start)).getAsString();
+            }
+        }
+        return new String(chars, start + 1, end - start - 2);
+    }
+}
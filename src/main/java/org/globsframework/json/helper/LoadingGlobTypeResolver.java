@@ -1,8 +1,10 @@
 package org.globsframework.json.helper;
 
 import com.google.gson.*;
+import org.globsframework.json.GSonUtils;
 import org.globsframework.json.GlobTypeResolver;
 import org.globsframework.json.GlobsGson;
+import org.globsframework.json.ParallelGlobTypeLoader;
 import org.globsframework.metamodel.GlobType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,19 +12,38 @@ import org.slf4j.LoggerFactory;
 import java.io.Reader;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class LoadingGlobTypeResolver implements GlobTypeResolver {
     static private final Logger LOGGER = LoggerFactory.getLogger(LoadingGlobTypeResolver.class);
-    private Gson gson;
     private Map<String, JsonObject> typesToLoad;
-    private Map<String, GlobType> created = new HashMap<>();
+    // read without lock once loaded, types are loaded under the lock of their component (a type load its referenced types)
+    private final Map<String, GlobType> created = new ConcurrentHashMap<>();
+    private final Map<String, Component> components = new HashMap<>();
     private GlobTypeAccessor globTypeResolver;
 
     private LoadingGlobTypeResolver(GlobTypeAccessor globTypeResolver,
                                    Map<String, JsonObject> typesToLoad) {
         this.globTypeResolver = globTypeResolver;
         this.typesToLoad = typesToLoad;
+        for (List<String> names : ParallelGlobTypeLoader.components(typesToLoad)) {
+            Component component = new Component();
+            for (String name : names) {
+                components.put(name, component);
+            }
+        }
+    }
+
+    /*
+    The recursive types are in the same component : they are loaded under the same lock with the same typesInProgress
+    (a type that reference a type being loaded get its unCompleteType). A component only wait for the components it
+    depends on, which never wait for it : the first loads of independent types are not serialized.
+     */
+    private static class Component {
+        final Map<String, GlobType> typesInProgress = new HashMap<>();
     }
 
     static public Builder builder(GlobTypeAccessor globTypeResolver) {
@@ -42,9 +63,12 @@ public class LoadingGlobTypeResolver implements GlobTypeResolver {
         }
 
         public Collection<GlobType> read() {
-            LoadingGlobTypeResolver loadingGlobTypeResolver = new LoadingGlobTypeResolver(globTypeResolver::find, typeToJsonObject);
-            Gson gson = GlobsGson.create(loadingGlobTypeResolver);
-            return loadingGlobTypeResolver.load(gson);
+            return new LoadingGlobTypeResolver(globTypeResolver::find, typeToJsonObject).load();
+        }
+
+        // independent types are read in parallel
+        public Collection<GlobType> read(ForkJoinPool pool) {
+            return new ParallelGlobTypeLoader(pool, globTypeResolver::find, false).load(typeToJsonObject).values();
         }
 
     }
@@ -82,17 +106,33 @@ public class LoadingGlobTypeResolver implements GlobTypeResolver {
         if (globType != null) {
             return globType;
         }
-        GlobType wanted = globTypeResolver.find(s);
-        if (wanted == null) {
-            JsonObject typeToLoad = typesToLoad.get(s);
-            wanted = gson.fromJson(typeToLoad, GlobType.class);
-            created.put(s, wanted);
+        return loadType(s);
+    }
+
+    private GlobType loadType(String s) {
+        Component component = components.get(s);
+        if (component == null) {
+            return globTypeResolver.find(s);
+        }
+        synchronized (component) {
+            GlobType globType = created.get(s);
+            if (globType != null) {
+                return globType;
+            }
+            globType = component.typesInProgress.get(s);
+            if (globType != null) {
+                return globType;
+            }
+            GlobType wanted = globTypeResolver.find(s);
+            if (wanted == null) {
+                wanted = GSonUtils.decodeGlobType(typesToLoad.get(s), this, false, component.typesInProgress);
+                created.put(s, wanted);
+            }
+            return wanted;
         }
-        return wanted;
     }
 
-    public Collection<GlobType> load(Gson gson) {
-        this.gson = gson;
+    public Collection<GlobType> load() {
         for (String s : typesToLoad.keySet()) {
             created.put(s, get(s)); // force adding it because created do not contains local type (from GlobTypeResolver)
         }
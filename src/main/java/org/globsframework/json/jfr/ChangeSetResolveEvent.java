@@ -0,0 +1,10 @@
+package org.globsframework.json.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// elementCount is the number of deferred glob references resolved
+@Name("org.globsframework.json.ChangeSetResolve")
+@Label("PreChangeSet Resolve")
+public class ChangeSetResolveEvent extends GlobsJsonEvent {
+}
@@ -0,0 +1,37 @@
+package org.globsframework.json.jfr;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public class CountingReader extends Reader {
+    private final Reader reader;
+    private long count;
+
+    public CountingReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int read() throws IOException {
+        int c = reader.read();
+        if (c != -1) {
+            count++;
+        }
+        return c;
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        int read = reader.read(cbuf, off, len);
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,40 @@
+package org.globsframework.json.jfr;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class CountingWriter extends Writer {
+    private final Writer writer;
+    private long count;
+
+    public CountingWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void write(int c) throws IOException {
+        writer.write(c);
+        count++;
+    }
+
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        writer.write(cbuf, off, len);
+        count += len;
+    }
+
+    public void write(String str, int off, int len) throws IOException {
+        writer.write(str, off, len);
+        count += len;
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    public void close() throws IOException {
+        writer.close();
+    }
+}
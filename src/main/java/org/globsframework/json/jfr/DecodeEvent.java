@@ -0,0 +1,9 @@
+package org.globsframework.json.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.globsframework.json.Decode")
+@Label("Json Decode")
+public class DecodeEvent extends GlobsJsonEvent {
+}
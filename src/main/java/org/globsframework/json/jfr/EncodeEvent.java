@@ -0,0 +1,9 @@
+package org.globsframework.json.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.globsframework.json.Encode")
+@Label("Json Encode")
+public class EncodeEvent extends GlobsJsonEvent {
+}
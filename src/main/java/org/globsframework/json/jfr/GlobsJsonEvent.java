@@ -0,0 +1,33 @@
+package org.globsframework.json.jfr;
+
+import jdk.jfr.*;
+
+/*
+ threshold can be changed in the recording settings (.jfc) or with
+ recording.enable(DecodeEvent.class).withThreshold(Duration.ofMillis(1))
+ */
+@Category({"Globs", "Json"})
+@StackTrace(false)
+@Threshold("10 ms")
+public abstract class GlobsJsonEvent extends Event {
+
+    @Label("Glob Type")
+    String globType;
+
+    @Label("Element Count")
+    long elementCount;
+
+    @Label("Json Length")
+    @Description("Number of json characters read or written, -1 if unknown")
+    long length = -1;
+
+    public void end(String globType, long elementCount, long length) {
+        end();
+        if (shouldCommit()) {
+            this.globType = globType;
+            this.elementCount = elementCount;
+            this.length = length;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package org.globsframework.json.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.globsframework.json.SchemaEncode")
+@Label("GlobType Schema Encode")
+public class SchemaEncodeEvent extends GlobsJsonEvent {
+}
@@ -18,7 +18,8 @@ import org.globsframework.model.format.GlobPrinter;
 import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.Set;
+import java.io.StringReader;
+import java.util.*;
 
 public class ChangeSetGsonTest {
 
@@ -339,6 +340,235 @@ public class ChangeSetGsonTest {
     }
 
 
+    @Test
+    public void readWithPropertiesInAnyOrder() {
+        //language=JSON
+        String json = "[\n" +
+                "  {\n" +
+                "    \"newValue\": {\n" +
+                "      \"name\": \"d1\",\n" +
+                "      \"subElement\": {\n" +
+                "        \"uuid\": \"AAAA\"\n" +
+                "      }\n" +
+                "    },\n" +
+                "    \"key\": {\n" +
+                "      \"uuid\": \"XXXX\"\n" +
+                "    },\n" +
+                "    \"_kind\": \"dummyType\",\n" +
+                "    \"state\": \"create\"\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"oldValue\": {\n" +
+                "      \"name\": \"d2\"\n" +
+                "    },\n" +
+                "    \"state\": \"update\",\n" +
+                "    \"key\": {\n" +
+                "      \"uuid\": \"YYYY\"\n" +
+                "    },\n" +
+                "    \"_kind\": \"dummyType\",\n" +
+                "    \"newValue\": {\n" +
+                "      \"name\": \"d3\"\n" +
+                "    }\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"_kind\": \"subType\",\n" +
+                "    \"state\": \"create\",\n" +
+                "    \"key\": {\n" +
+                "      \"uuid\": \"AAAA\"\n" +
+                "    },\n" +
+                "    \"newValue\": {\n" +
+                "      \"subName\": \"nSub1\"\n" +
+                "    }\n" +
+                "  }\n" +
+                "]";
+        GlobModel globModel = new DefaultGlobModel(DummyType.TYPE, SubType.TYPE, SubTypeWWithoutKey.TYPE);
+        Gson gson = GlobsGson.create(globModel::getType);
+        PreChangeSet preChangeSet = gson.fromJson(json, PreChangeSet.class);
+        ChangeSet changeSet = preChangeSet.resolve(key -> {
+            throw new RuntimeException("Unexpected key " + GlobPrinter.toString(key.asFieldValues()));
+        });
+        Key created = KeyBuilder.newKey(DummyType.TYPE, "XXXX");
+        Assert.assertTrue(changeSet.getCreated(DummyType.TYPE).contains(created));
+        FieldValues newValues = changeSet.getNewValues(created);
+        Assert.assertEquals("d1", newValues.get(DummyType.NAME));
+        Assert.assertEquals("nSub1", newValues.get(DummyType.SUB_ELEMENT).get(SubType.SUB_NAME));
+
+        Key updated = KeyBuilder.newKey(DummyType.TYPE, "YYYY");
+        Assert.assertTrue(changeSet.getUpdated(DummyType.TYPE).contains(updated));
+        Assert.assertEquals("d3", changeSet.getNewValues(updated).get(DummyType.NAME));
+    }
+
+    @Test
+    public void resolveReferencesByBatch() {
+        MutableChangeSet changeSet = DefaultChangeSet.createOrdered();
+        Glob sub1 = SubType.TYPE.instantiate().set(SubType.UUID, "AAAA").set(SubType.SUB_NAME, "sub1");
+        Glob sub2 = SubType.TYPE.instantiate().set(SubType.UUID, "BBBB").set(SubType.SUB_NAME, "sub2");
+        Glob d1 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_1");
+        changeSet.processUpdate(d1.getKey(), DummyType.SUB_ELEMENT, sub1, null);
+        Glob d2 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_2");
+        changeSet.processUpdate(d2.getKey(), DummyType.SUB_ELEMENT, sub1, null);
+        Glob d3 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_3");
+        changeSet.processUpdate(d3.getKey(), DummyType.SUB_ELEMENT, sub2, null);
+
+        GlobModel globModel = new DefaultGlobModel(DummyType.TYPE, SubType.TYPE, SubTypeWWithoutKey.TYPE);
+        Gson gson = GlobsGson.create(globModel::getType);
+        String jsonChangeSet = gson.toJson(changeSet);
+
+        Map<Key, Glob> store = new HashMap<>();
+        store.put(sub1.getKey(), sub1);
+        store.put(sub2.getKey(), sub2);
+        List<Collection<Key>> calls = new ArrayList<>();
+        GlobAccessor bulkAccessor = new GlobAccessor() {
+            public Glob get(Key key) {
+                throw new RuntimeException("getAll expected");
+            }
+
+            public Map<Key, Glob> getAll(Collection<Key> keys) {
+                calls.add(new ArrayList<>(keys));
+                Map<Key, Glob> globs = new HashMap<>();
+                keys.forEach(key -> globs.put(key, store.get(key)));
+                return globs;
+            }
+        };
+
+        ChangeSet actualChangeSet = gson.fromJson(jsonChangeSet, PreChangeSet.class).resolve(bulkAccessor);
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals(2, calls.get(0).size());
+        Assert.assertEquals("sub2", actualChangeSet.getNewValues(d3.getKey()).get(DummyType.SUB_ELEMENT).get(SubType.SUB_NAME));
+
+        calls.clear();
+        gson.fromJson(jsonChangeSet, PreChangeSet.class).resolve(bulkAccessor, 1);
+        Assert.assertEquals(2, calls.size());
+
+        try {
+            gson.fromJson(jsonChangeSet, PreChangeSet.class).resolve(bulkAccessor, 0);
+            Assert.fail("batchSize 0 is rejected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void streamChangesToVisitor() {
+        MutableChangeSet changeSet = DefaultChangeSet.createOrdered();
+        Glob sub1 = SubType.TYPE.instantiate().set(SubType.UUID, "AAAA").set(SubType.SUB_NAME, "sub1");
+        changeSet.processCreation(sub1.getKey(), sub1);
+        Glob d1 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_1").set(DummyType.SUB_ELEMENT, sub1);
+        changeSet.processCreation(d1.getKey(), d1);
+        Glob sub2 = SubType.TYPE.instantiate().set(SubType.UUID, "BBBB").set(SubType.SUB_NAME, "sub2");
+        Glob d2 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_2");
+        changeSet.processUpdate(d2.getKey(), DummyType.SUB_ELEMENT, sub2, null);
+
+        GlobModel globModel = new DefaultGlobModel(DummyType.TYPE, SubType.TYPE, SubTypeWWithoutKey.TYPE);
+        String jsonChangeSet = GlobsGson.create(globModel::getType).toJson(changeSet);
+
+        List<Key> asked = new ArrayList<>();
+        GlobAccessor globAccessor = key -> {
+            asked.add(key);
+            return key.equals(sub1.getKey()) ? sub1 : sub2;
+        };
+        List<String> visited = new ArrayList<>();
+        ChangeSetVisitor visitor = new ChangeSetVisitor() {
+            public void visitCreation(Key key, FieldsValueScanner values) {
+                visited.add("create " + key.getGlobType().getName());
+            }
+
+            public void visitUpdate(Key key, FieldsValueWithPreviousScanner values) {
+                visited.add("update " + key.getGlobType().getName());
+            }
+
+            public void visitDeletion(Key key, FieldsValueScanner previousValues) {
+                visited.add("delete " + key.getGlobType().getName());
+            }
+        };
+
+        long count = GSonUtils.decodeChangeSet(new StringReader(jsonChangeSet), globModel::getType, globAccessor, 10, visitor);
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(3, visited.size());
+        Assert.assertTrue(visited.contains("update dummyType"));
+        Assert.assertEquals(Collections.singletonList(sub2.getKey()), asked);
+
+        visited.clear();
+        asked.clear();
+        GSonUtils.decodeChangeSet(new StringReader(jsonChangeSet), globModel::getType, globAccessor, 1, visitor);
+        Assert.assertEquals(3, visited.size());
+        Assert.assertEquals(2, asked.size());
+    }
+
+    @Test
+    public void compactReadWrite() {
+        MutableChangeSet changeSet = DefaultChangeSet.createOrdered();
+        Glob sub1 = SubType.TYPE.instantiate().set(SubType.SUB_NAME, "nSub1").set(SubType.UUID, "AAAA");
+        changeSet.processCreation(sub1.getKey(), sub1);
+        Glob d1 = DummyType.TYPE.instantiate().set(DummyType.NAME, "d1").set(DummyType.UUID, "XXXX")
+                .set(DummyType.SUB_ELEMENT, sub1);
+        changeSet.processCreation(d1.getKey(), d1);
+        Glob d2 = DummyType.TYPE.instantiate().set(DummyType.UUID, "YYYYY");
+        changeSet.processUpdate(d2.getKey(), DummyType.NAME, "d1", "d2");
+        Glob d3 = DummyType.TYPE.instantiate().set(DummyType.UUID, "ZZZZ").set(DummyType.NAME, "d3");
+        changeSet.processDeletion(d3.getKey(), d3);
+
+        GlobsGsonAdapterTest.assertEquivalent("{\n" +
+                "  \"dummyType\": {\n" +
+                "    \"create\": [[\"XXXX\", {\"name\": \"d1\", \"subElement\": {\"uuid\": \"AAAA\"}}]],\n" +
+                "    \"update\": [[\"YYYYY\", {\"name\": \"d1\"}]],\n" +
+                "    \"delete\": [[\"ZZZZ\"]]\n" +
+                "  },\n" +
+                "  \"subType\": {\n" +
+                "    \"create\": [[\"AAAA\", {\"subName\": \"nSub1\"}]]\n" +
+                "  }\n" +
+                "}", GSonUtils.encodeCompact(changeSet, false));
+
+        String compact = GSonUtils.encodeCompact(changeSet, true);
+        GlobModel globModel = new DefaultGlobModel(DummyType.TYPE, SubType.TYPE, SubTypeWWithoutKey.TYPE);
+        ChangeSet actualChangeSet = GSonUtils.decodeCompactChangeSet(new StringReader(compact), globModel::getType)
+                .resolve(key -> {
+                    throw new RuntimeException("Unexpected key " + GlobPrinter.toString(key.asFieldValues()));
+                });
+        Assert.assertTrue(actualChangeSet.isCreated(sub1.getKey()));
+        Assert.assertTrue(actualChangeSet.isCreated(d1.getKey()));
+        Assert.assertTrue(actualChangeSet.isUpdated(d2.getKey()));
+        Assert.assertTrue(actualChangeSet.isDeleted(d3.getKey()));
+        Assert.assertEquals("nSub1", actualChangeSet.getNewValues(d1.getKey()).get(DummyType.SUB_ELEMENT).get(SubType.SUB_NAME));
+    }
+
+    @Test
+    public void coalesceChangeSets() {
+        GlobModel globModel = new DefaultGlobModel(DummyType.TYPE, SubType.TYPE, SubTypeWWithoutKey.TYPE);
+        Gson gson = GlobsGson.create(globModel::getType);
+        Glob sub1 = SubType.TYPE.instantiate().set(SubType.UUID, "AAAA").set(SubType.SUB_NAME, "first");
+        Glob d1 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_1");
+        Glob d2 = DummyType.TYPE.instantiate().set(DummyType.UUID, "UUID_2").set(DummyType.NAME, "d2");
+
+        MutableChangeSet first = DefaultChangeSet.createOrdered();
+        first.processCreation(sub1.getKey(), sub1);
+        first.processUpdate(d1.getKey(), DummyType.NAME, "n1", "n0");
+        MutableChangeSet second = DefaultChangeSet.createOrdered();
+        second.processUpdate(sub1.getKey(), SubType.SUB_NAME, "second", "first");
+        second.processUpdate(d1.getKey(), DummyType.NAME, "n2", "n1");
+        second.processUpdate(d1.getKey(), DummyType.SUB_ELEMENT, sub1, null);
+        second.processCreation(d2.getKey(), d2);
+        MutableChangeSet third = DefaultChangeSet.createOrdered();
+        third.processDeletion(d2.getKey(), d2);
+
+        ChangeSetCoalescer coalescer = new ChangeSetCoalescer();
+        GlobAccessor globAccessor = key -> {
+            throw new RuntimeException("Unexpected key " + GlobPrinter.toString(key.asFieldValues()));
+        };
+        for (ChangeSet changeSet : Arrays.asList(first, second, third)) {
+            coalescer.add(new StringReader(gson.toJson(changeSet)), globModel::getType, globAccessor, 10);
+        }
+        Assert.assertEquals(2, coalescer.size());
+
+        ChangeSet changeSet = coalescer.getChangeSet();
+        Assert.assertTrue(changeSet.isCreated(sub1.getKey()));
+        Assert.assertEquals("second", changeSet.getNewValues(sub1.getKey()).get(SubType.SUB_NAME));
+        Assert.assertTrue(changeSet.isUpdated(d1.getKey()));
+        Assert.assertEquals("n2", changeSet.getNewValues(d1.getKey()).get(DummyType.NAME));
+        Assert.assertEquals("first", changeSet.getNewValues(d1.getKey()).get(DummyType.SUB_ELEMENT).get(SubType.SUB_NAME));
+        Assert.assertFalse(changeSet.isCreated(d2.getKey()));
+        Assert.assertFalse(changeSet.isDeleted(d2.getKey()));
+    }
+
     @Test
     public void Update() {
 
@@ -7,6 +7,7 @@ import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.GlobTypeLoaderFactory;
 import org.globsframework.metamodel.annotations.Target;
 import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.metamodel.fields.IntegerField;
 import org.globsframework.metamodel.fields.StringField;
 import org.globsframework.model.Glob;
 import org.globsframework.model.MutableGlob;
@@ -38,7 +39,28 @@ public class ComplexJsonTest {
         Assert.assertEquals("o2", newA.get(A.b)[1].get(B.otherField));
     }
 
+    @Test
+    public void indexWithIntKey() {
+        Glob[] entries = new Glob[100];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = C.TYPE.instantiate().set(C.id, i * 7).set(C.value, "v" + i);
+        }
+        MutableGlob d = D.TYPE.instantiate()
+                .set(D.entries, entries)
+                .set(D.after, "end");
+        String encode = GSonUtils.encode(d, false);
+        Assert.assertTrue(encode.startsWith("{\"entries\":{\"0\":{\"value\":\"v0\"},\"7\":{\"value\":\"v1\"}"));
 
+        GlobArrayIndexes indexes = new GlobArrayIndexes();
+        Glob newD = GSonUtils.decode(new GSonUtils.NoLockStringReader(encode), D.TYPE, indexes);
+        Assert.assertEquals("end", newD.get(D.after));
+        Assert.assertEquals(100, newD.get(D.entries).length);
+        GlobArrayIndex index = indexes.get(newD.get(D.entries));
+        Assert.assertEquals(100, index.size());
+        Assert.assertEquals("v3", index.get(21).get(C.value));
+        Assert.assertEquals(21, index.get("21").get(C.id).intValue());
+        Assert.assertNull(index.get(22));
+    }
 
     public static class A {
         public static GlobType TYPE;
@@ -66,4 +88,31 @@ public class ComplexJsonTest {
             GlobTypeLoaderFactory.create(B.class).load();
         }
     }
+
+    public static class C {
+        public static GlobType TYPE;
+
+        @JsonValueAsField
+        public static IntegerField id;
+
+        public static StringField value;
+
+        static {
+            GlobTypeLoaderFactory.create(C.class).load();
+        }
+    }
+
+    public static class D {
+        public static GlobType TYPE;
+
+        @Target(C.class)
+        @JsonAsObject
+        public static GlobArrayField entries;
+
+        public static StringField after;
+
+        static {
+            GlobTypeLoaderFactory.create(D.class).load();
+        }
+    }
 }
@@ -1,23 +1,52 @@
 package org.globsframework.json;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import org.globsframework.json.annottations.AllAnnotations;
+import org.globsframework.json.annottations.IsJsonContentType;
+import org.globsframework.json.annottations.JsonAsObjectType;
 import org.globsframework.json.annottations.JsonDateTimeFormatAnnotation;
+import org.globsframework.json.annottations.JsonValueAsFieldType;
 import org.globsframework.metamodel.GlobType;
+import org.globsframework.metamodel.GlobTypeBuilder;
+import org.globsframework.metamodel.GlobTypeBuilderFactory;
 import org.globsframework.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.metamodel.impl.DefaultGlobTypeBuilder;
 import org.globsframework.metamodel.annotations.KeyAnnotationType;
 import org.globsframework.metamodel.annotations.KeyField;
 import org.globsframework.metamodel.annotations.Required;
+import org.globsframework.metamodel.fields.BlobField;
+import org.globsframework.metamodel.fields.BooleanArrayField;
 import org.globsframework.metamodel.fields.DateTimeField;
+import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.metamodel.fields.GlobField;
+import org.globsframework.metamodel.fields.IntegerArrayField;
 import org.globsframework.metamodel.fields.IntegerField;
+import org.globsframework.metamodel.fields.LongArrayField;
 import org.globsframework.metamodel.fields.StringField;
 import org.globsframework.model.Glob;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GSonUtilsTest {
 
@@ -60,8 +89,262 @@ public class GSonUtilsTest {
         Assert.assertTrue(type.getField("arrival").hasAnnotation(JsonDateTimeFormatType.UNIQUE_KEY));
         Assert.assertEquals(LocalType.TYPE.getName(), type.getName());
         String s2 = GSonUtils.encodeGlobType(type);
+        Assert.assertSame(s, GSonUtils.encodeGlobType(LocalType.TYPE));
+        Assert.assertEquals(s, GlobsGson.create(name -> null).toJson(GlobTypeSet.export(LocalType.TYPE)));
     }
 
+    @Test
+    public void schemaSentOnceByPeer() throws IOException {
+        GlobTypeSchemaRegistry sender = new GlobTypeSchemaRegistry(AllAnnotations.RESOLVER, false);
+        GlobTypeSchemaRegistry.Peer peer = sender.newPeer();
+        StringWriter writer = new StringWriter();
+        JsonWriter out = new JsonWriter(writer);
+        out.beginArray();
+        peer.write(out, LocalType.TYPE);
+        peer.write(out, LocalType.TYPE);
+        out.endArray();
+        out.close();
+        String fingerprint = GlobTypeFingerprint.toString(GlobTypeFingerprint.get(LocalType.TYPE));
+        Assert.assertTrue(writer.toString().endsWith(",\"" + fingerprint + "\"]"));
+
+        GlobTypeSchemaRegistry receiver = new GlobTypeSchemaRegistry(AllAnnotations.RESOLVER, false);
+        JsonReader in = new JsonReader(new StringReader(writer.toString()));
+        in.beginArray();
+        GlobType first = receiver.read(in);
+        GlobType second = receiver.read(in);
+        in.endArray();
+        Assert.assertEquals(LocalType.TYPE.getName(), first.getName());
+        Assert.assertSame(first, second);
+    }
+
+    @Test
+    public void sendOnlyMissingTypes() throws IOException {
+        GlobType shared = GlobTypeBuilderFactory.create("shared").addStringField("name").get();
+        GlobTypeBuilder firstBuilder = DefaultGlobTypeBuilder.init("first");
+        firstBuilder.declareGlobField("shared", shared);
+        GlobType first = firstBuilder.get();
+        GlobTypeBuilder secondBuilder = DefaultGlobTypeBuilder.init("second");
+        secondBuilder.declareGlobField("shared", shared);
+        GlobType second = secondBuilder.get();
+
+        Assert.assertEquals(2, GlobTypeSet.export(second).globType.length);
+        Assert.assertEquals(1, GlobTypeSet.exportMissing(second, Collections.singleton(GlobTypeFingerprint.get(shared))).globType.length);
+
+        GlobTypeSchemaRegistry.Peer peer = new GlobTypeSchemaRegistry(AllAnnotations.RESOLVER, false).newPeer();
+        StringWriter writer = new StringWriter();
+        JsonWriter out = new JsonWriter(writer);
+        out.beginArray();
+        peer.write(out, first);
+        peer.write(out, second);
+        out.endArray();
+        out.close();
+        JsonArray messages = new JsonParser().parse(writer.toString()).getAsJsonArray();
+        Assert.assertEquals(2, messages.get(0).getAsJsonObject().getAsJsonArray(GlobTypeSchemaRegistry.SCHEMA).size());
+        Assert.assertEquals(1, messages.get(1).getAsJsonObject().getAsJsonArray(GlobTypeSchemaRegistry.SCHEMA).size());
+
+        GlobTypeSchemaRegistry receiver = new GlobTypeSchemaRegistry(AllAnnotations.RESOLVER, false);
+        JsonReader in = new JsonReader(new StringReader(writer.toString()));
+        in.beginArray();
+        GlobType firstRead = receiver.read(in);
+        GlobType secondRead = receiver.read(in);
+        in.endArray();
+        Assert.assertSame(((GlobField) firstRead.getField("shared")).getTargetType(),
+                ((GlobField) secondRead.getField("shared")).getTargetType());
+        Assert.assertSame(secondRead, receiver.find("second"));
+    }
+
+    @Test
+    public void decodeSchemaOnceFromManyThreads() throws Exception {
+        String schema = GSonUtils.encodeGlobType(LocalType.TYPE);
+        GlobTypeDecodeCache cache = new GlobTypeDecodeCache(AllAnnotations.RESOLVER, false, 1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<GlobType>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            results.add(executorService.submit(() -> cache.decode(schema)));
+        }
+        GlobType first = results.get(0).get();
+        for (Future<GlobType> result : results) {
+            Assert.assertSame(first, result.get());
+        }
+        executorService.shutdown();
+        Assert.assertEquals(LocalType.TYPE.getName(), first.getName());
+
+        cache.decode(GSonUtils.encodeGlobType(GlobTypeBuilderFactory.create("other").addStringField("f").get()));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertNotSame(first, cache.decode(schema));
+    }
+
+    @Test
+    public void internIdenticalSchemas() {
+        String schema = GSonUtils.encodeGlobType(LocalType.TYPE);
+        GlobTypeInterner interner = new GlobTypeInterner();
+        GlobType first = GSonUtils.decodeGlobType(schema, AllAnnotations.RESOLVER, false, interner);
+        GlobType second = GSonUtils.decodeGlobType(schema, AllAnnotations.RESOLVER, false, interner);
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, GSonUtils.decodeGlobType(schema, AllAnnotations.RESOLVER, false));
+        Assert.assertEquals(1, interner.typeCount());
+        Assert.assertTrue(interner.annotationCount() > 0);
+    }
+
+    @Test
+    public void cacheResolvedTypesAndMisses() {
+        AtomicInteger calls = new AtomicInteger();
+        GlobTypeResolver resolver = name -> {
+            calls.incrementAndGet();
+            return name.equals(LocalType.TYPE.getName()) ? LocalType.TYPE : null;
+        };
+        CachedGlobTypeResolver cached = new CachedGlobTypeResolver(resolver, 1, TimeUnit.HOURS);
+        Assert.assertSame(LocalType.TYPE, cached.get(LocalType.TYPE.getName()));
+        Assert.assertSame(LocalType.TYPE, cached.get(LocalType.TYPE.getName()));
+        Assert.assertNull(cached.find("unknown"));
+        Assert.assertNull(cached.find("unknown"));
+        Assert.assertEquals(2, calls.get());
+        cached.invalidate("unknown");
+        Assert.assertNull(cached.find("unknown"));
+        Assert.assertEquals(3, calls.get());
+
+        GlobTypeResolver snapshot = cached.snapshot();
+        Assert.assertSame(LocalType.TYPE, snapshot.find(LocalType.TYPE.getName()));
+        Assert.assertNull(snapshot.find("unknown"));
+
+        GlobType[] types = new GlobType[20];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = GlobTypeBuilderFactory.create("type" + i).addStringField("name").get();
+        }
+        GlobTypeResolver table = CachedGlobTypeResolver.snapshot(types);
+        for (GlobType type : types) {
+            Assert.assertSame(type, table.find(type.getName()));
+        }
+        Assert.assertNull(table.find("type20"));
+    }
+
+    @Test
+    public void jsonTreeWithoutText() {
+        ZonedDateTime arrival = ZonedDateTime.of(2019, 9, 13, 13, 15, 21, 0, ZoneId.systemDefault());
+        Glob glob = LocalType.TYPE.instantiate()
+                .set(LocalType.id, 24)
+                .set(LocalType.name, "TEST éè")
+                .set(LocalType.arrival, arrival);
+        JsonObject tree = GSonUtils.toJsonTree(glob, true);
+        Assert.assertEquals(GSonUtils.normalize(GSonUtils.encode(glob, true)), new Gson().toJson(tree));
+
+        Glob read = GSonUtils.fromJsonTree(tree, name -> name.equals(LocalType.TYPE.getName()) ? LocalType.TYPE : null);
+        Assert.assertEquals(24, read.get(LocalType.id).intValue());
+        Assert.assertEquals("TEST éè", read.get(LocalType.name));
+        Assert.assertEquals(arrival, read.get(LocalType.arrival));
+
+        JsonArray array = GSonUtils.toJsonTree(new Glob[]{glob, LocalType.TYPE.instantiate().set(LocalType.id, 25)}, false);
+        Assert.assertEquals(GSonUtils.normalize(GSonUtils.encode(new Glob[]{glob, LocalType.TYPE.instantiate().set(LocalType.id, 25)}, false)),
+                new Gson().toJson(array));
+        Assert.assertNull(GSonUtils.fromJsonTree(array.get(1), LocalType.TYPE).get(LocalType.name));
+    }
+
+    @Test
+    public void jsonTreeWithJsonAsObjectAndJsonContent() {
+        GlobTypeBuilder entryBuilder = DefaultGlobTypeBuilder.init("entry");
+        StringField key = entryBuilder.declareStringField("key", JsonValueAsFieldType.UNIQUE_GLOB);
+        StringField content = entryBuilder.declareStringField("content", IsJsonContentType.UNIQUE_GLOB);
+        GlobType entry = entryBuilder.get();
+        GlobTypeBuilder entriesBuilder = DefaultGlobTypeBuilder.init("entries");
+        GlobArrayField entries = entriesBuilder.declareGlobArrayField("entries", entry, JsonAsObjectType.UNIQUE_GLOB);
+        GlobArrayField empty = entriesBuilder.declareGlobArrayField("empty", entry, JsonAsObjectType.UNIQUE_GLOB);
+        GlobType entriesType = entriesBuilder.get();
+
+        Glob glob = entriesType.instantiate()
+                .set(entries, new Glob[]{
+                        entry.instantiate().set(key, "a").set(content, "{\"x\":1}"),
+                        entry.instantiate().set(key, "b").set(content, "[1,2]")});
+        JsonObject tree = GSonUtils.toJsonTree(glob, false);
+        Assert.assertEquals(GSonUtils.normalize(GSonUtils.encode(glob, false)), new Gson().toJson(tree));
+        Assert.assertTrue(tree.get("empty").isJsonNull());
+
+        Glob read = GSonUtils.fromJsonTree(tree, entriesType);
+        Glob[] readEntries = read.get(entries);
+        Assert.assertEquals(2, readEntries.length);
+        Assert.assertEquals("a", readEntries[0].get(key));
+        Assert.assertEquals("{\"x\":1}", readEntries[0].get(content));
+        Assert.assertEquals("b", readEntries[1].get(key));
+        Assert.assertEquals("[1,2]", readEntries[1].get(content));
+        Assert.assertNull(read.get(empty));
+    }
+
+    @Test
+    public void mapWithoutText() {
+        ZonedDateTime arrival = ZonedDateTime.of(2019, 9, 13, 13, 15, 21, 0, ZoneId.systemDefault());
+        Glob glob = LocalType.TYPE.instantiate()
+                .set(LocalType.id, 24)
+                .set(LocalType.name, "TEST éè")
+                .set(LocalType.arrival, arrival);
+        Map<String, Object> map = GSonUtils.toMap(glob, true);
+        Assert.assertEquals("2019-09-13 13:15:21", map.get("arrival"));
+        Assert.assertEquals(GSonUtils.normalize(GSonUtils.encode(glob, true)), JsonCopy.toJson(map));
+
+        Glob read = GSonUtils.fromMap(map, name -> name.equals(LocalType.TYPE.getName()) ? LocalType.TYPE : null);
+        Assert.assertEquals(24, read.get(LocalType.id).intValue());
+        Assert.assertEquals("TEST éè", read.get(LocalType.name));
+        Assert.assertEquals(arrival, read.get(LocalType.arrival));
+
+        Map<String, Object> fromJson = (Map<String, Object>) JsonCopy.readObject(GSonUtils.encode(glob, false));
+        Assert.assertEquals(arrival, GSonUtils.fromMap(fromJson, LocalType.TYPE).get(LocalType.arrival));
+    }
+
+    @Test
+    public void mapWithPrimitiveArraysAndNullJsonAsObject() {
+        GlobTypeBuilder entryBuilder = DefaultGlobTypeBuilder.init("entry");
+        StringField key = entryBuilder.declareStringField("key", JsonValueAsFieldType.UNIQUE_GLOB);
+        GlobType entry = entryBuilder.get();
+        GlobTypeBuilder builder = DefaultGlobTypeBuilder.init("values");
+        IntegerArrayField ints = builder.declareIntegerArrayField("ints");
+        LongArrayField longs = builder.declareLongArrayField("longs");
+        BooleanArrayField booleans = builder.declareBooleanArrayField("booleans");
+        GlobArrayField entries = builder.declareGlobArrayField("entries", entry, JsonAsObjectType.UNIQUE_GLOB);
+        GlobType values = builder.get();
+
+        Glob glob = values.instantiate()
+                .set(ints, new int[]{1, 2})
+                .set(longs, new long[]{3L})
+                .set(booleans, new boolean[]{true, false});
+        Map<String, Object> map = GSonUtils.toMap(glob, false);
+        Assert.assertTrue(map.containsKey("entries"));
+        Assert.assertNull(map.get("entries"));
+        Assert.assertEquals(GSonUtils.normalize(GSonUtils.encode(glob, false)), JsonCopy.toJson(map));
+
+        Glob read = GSonUtils.fromMap(map, values);
+        Assert.assertArrayEquals(new int[]{1, 2}, read.get(ints));
+        Assert.assertArrayEquals(new long[]{3L}, read.get(longs));
+        Assert.assertNull(read.get(entries));
+    }
+
+    @Test
+    public void blobByChunks() {
+        GlobTypeBuilder builder = DefaultGlobTypeBuilder.init("binary");
+        BlobField content = builder.declareBlobField("content");
+        GlobType binary = builder.get();
+        for (int length : new int[]{0, 1, 2, 3, 3071, 3072, 3073, 20000}) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 31);
+            }
+            String json = GSonUtils.encode(binary.instantiate().set(content, bytes), false);
+            Assert.assertEquals("{\"content\":\"" + Base64.getEncoder().encodeToString(bytes) + "\"}", json);
+            Assert.assertArrayEquals(bytes, GSonUtils.decode(json, binary).get(content));
+        }
+    }
+
+    @Test
+    public void blobWithoutPadding() {
+        GlobTypeBuilder builder = DefaultGlobTypeBuilder.init("binary");
+        BlobField content = builder.declareBlobField("content");
+        GlobType binary = builder.get();
+        for (int length : new int[]{1, 2, 4, 5, 4097, 4098}) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 31);
+            }
+            String json = "{\"content\":\"" + Base64.getEncoder().withoutPadding().encodeToString(bytes) + "\"}";
+            Assert.assertArrayEquals(bytes, GSonUtils.decode(json, binary).get(content));
+        }
+    }
 
     public static class LocalType {
         @Required
@@ -3,10 +3,20 @@ package org.globsframework.json;
 import com.google.gson.Gson;
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.annotations.FieldNameAnnotationType;
+import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.metamodel.fields.GlobField;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 public class GlobTypeArrayTest {
 
     @Test
@@ -26,7 +36,7 @@ public class GlobTypeArrayTest {
 
 
     @Test
-    public void recursiveType() {
+    public void recursiveType() throws IOException {
         String name = "[\n" +
                 "  {\n" +
                 "    \"kind\": \"root\",\n" +
@@ -77,5 +87,48 @@ public class GlobTypeArrayTest {
         GlobTypeSet export = GlobTypeSet.export(globTypes[0]);
         Assert.assertEquals("root", globTypes[0].getName());
 
+        GlobTypeSetAdapter parallelAdapter = new GlobTypeSetAdapter(false, GlobTypeResolver.from(FieldNameAnnotationType.TYPE), false, ForkJoinPool.commonPool());
+        GlobType[] parallelTypes = parallelAdapter.fromJson(name).globType;
+        Assert.assertEquals(3, parallelTypes.length);
+        Assert.assertEquals("root", parallelTypes[0].getName());
+        GlobType node = ((GlobArrayField) parallelTypes[0].getField("__children__")).getTargetType();
+        Assert.assertSame(node, ((GlobArrayField) node.getField("__children__")).getTargetType());
+    }
+
+    @Test
+    public void anyPropertyOrderAndCycle() {
+        String name = "[{\"fields\":[{\"type\":\"glob\",\"kind\":\"B\",\"name\":\"b\"},{\"name\":\"label\",\"type\":\"string\"}],\"kind\":\"A\"}," +
+                "{\"annotations\":[{\"name\":\"B_NAME\",\"_kind\":\"fieldNameAnnotation\"}],\"kind\":\"B\"," +
+                "\"fields\":[{\"name\":\"a\",\"type\":\"globArray\",\"kind\":\"A\"}]}]";
+
+        Gson gson = GlobsGson.create(GlobTypeResolver.from(FieldNameAnnotationType.TYPE));
+        GlobType[] globTypes = gson.fromJson(name, GlobTypeSet.class).globType;
+        Assert.assertEquals(2, globTypes.length);
+        GlobType a = globTypes[0];
+        GlobType b = globTypes[1];
+        Assert.assertEquals("A", a.getName());
+        Assert.assertEquals(0, a.getField("b").getIndex());
+        Assert.assertEquals(1, a.getField("label").getIndex());
+        Assert.assertSame(b, ((GlobField) a.getField("b")).getTargetType());
+        Assert.assertSame(a, ((GlobArrayField) b.getField("a")).getTargetType());
+        Assert.assertTrue(b.streamAnnotations().anyMatch(glob -> glob.getType() == FieldNameAnnotationType.TYPE));
+    }
+
+    @Test
+    public void oneGsonFromManyThreads() throws Exception {
+        String name = "[{\"kind\":\"A\",\"fields\":[{\"name\":\"b\",\"type\":\"glob\",\"kind\":\"B\"}]}," +
+                "{\"kind\":\"B\",\"fields\":[{\"name\":\"a\",\"type\":\"globArray\",\"kind\":\"A\"}]}]";
+        Gson gson = GlobsGson.create(GlobTypeResolver.from(FieldNameAnnotationType.TYPE));
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<GlobType[]>> results = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            results.add(executorService.submit(() -> gson.fromJson(name, GlobTypeSet.class).globType));
+        }
+        for (Future<GlobType[]> result : results) {
+            GlobType[] globTypes = result.get();
+            Assert.assertSame(globTypes[1], ((GlobField) globTypes[0].getField("b")).getTargetType());
+            Assert.assertSame(globTypes[0], ((GlobArrayField) globTypes[1].getField("a")).getTargetType());
+        }
+        executorService.shutdown();
     }
 }
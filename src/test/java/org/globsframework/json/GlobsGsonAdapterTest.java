@@ -3,6 +3,7 @@ package org.globsframework.json;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
 import org.globsframework.json.annottations.IsJsonContentAnnotation;
 import org.globsframework.json.annottations.IsJsonContentType;
 import org.globsframework.metamodel.*;
@@ -22,10 +23,13 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
@@ -125,6 +129,50 @@ public class GlobsGsonAdapterTest {
         Assert.assertEquals(json, gson.toJson(type));
     }
 
+    @Test
+    public void readWriteGlobList() throws Exception {
+        List<Glob> globs = Arrays.asList(
+                LocalType.TYPE.instantiate().set(LocalType.ID, 1).set(LocalType.NAME, "name 1"),
+                LocalType.TYPE.instantiate().set(LocalType.ID, 2).set(LocalType.VALUE, 2.5));
+        Type listType = new TypeToken<List<Glob>>() {
+        }.getType();
+        Gson gson = init();
+        String json = gson.toJson(globs, listType);
+        Assert.assertEquals(json, gson.toJson(globs));
+        Assert.assertEquals(2, json.split(GlobsGson.KIND_NAME).length - 1);
+        List<Glob> read = gson.fromJson(json, listType);
+        Assert.assertEquals(2, read.size());
+        Assert.assertEquals("name 1", read.get(0).get(LocalType.NAME));
+        Glob[] array = gson.fromJson(json, Glob[].class);
+        Assert.assertEquals(2.5, array[1].get(LocalType.VALUE), 0.001);
+
+        GlobModel globTypes = new DefaultGlobModel(AllAnnotations.MODEL, LocalType.TYPE, IsJsonContentType.TYPE);
+        Gson withEnvelope = GlobsGson.createBuilder(globTypes::getType, false)
+                .registerTypeAdapterFactory(new GlobListTypeAdapterFactory(globTypes::getType, true))
+                .create();
+        String envelope = withEnvelope.toJson(globs, listType);
+        Assert.assertEquals(1, envelope.split(GlobsGson.KIND_NAME).length - 1);
+        List<Glob> readEnvelope = withEnvelope.fromJson(envelope, listType);
+        Assert.assertEquals(2, readEnvelope.get(1).get(LocalType.ID).intValue());
+        Assert.assertEquals(2, gson.fromJson(envelope, Glob[].class).length);
+    }
+
+    @Test
+    public void rawListWithoutGlobIsLeftToGson() throws Exception {
+        Gson gson = init();
+        List raw = Arrays.asList("a", null, 2.5, Arrays.asList("b", true));
+        String json = gson.toJson(raw);
+        Assert.assertEquals(new Gson().toJson(raw), json);
+        Assert.assertEquals("[\"a\",null,2.5,[\"b\",true]]", json);
+        Assert.assertEquals(raw, gson.fromJson(json, List.class));
+
+        Assert.assertEquals("[]", gson.toJson(new ArrayList()));
+        Assert.assertEquals(new ArrayList(), gson.fromJson("[]", List.class));
+
+        List nulls = Arrays.asList(null, null);
+        Assert.assertEquals(new Gson().toJson(nulls), gson.toJson(nulls));
+    }
+
     @Test
     public void readWriteGlobTypeUsingJsonTree() throws Exception {
         Gson gson = init();
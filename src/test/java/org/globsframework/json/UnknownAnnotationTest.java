@@ -3,10 +3,12 @@ package org.globsframework.json;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import junit.framework.Assert;
+import org.globsframework.json.annottations.UnknownAnnotation;
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.GlobTypeLoaderFactory;
 import org.globsframework.metamodel.annotations.KeyField;
 import org.globsframework.metamodel.fields.StringField;
+import org.globsframework.model.Glob;
 import org.globsframework.model.KeyBuilder;
 import org.junit.Test;
 
@@ -49,6 +51,25 @@ public class UnknownAnnotationTest {
         }
     }
 
+    @Test
+    public void unknownAnnotationKeptAsJson() {
+        String ann = "{\"_kind\":\"" + Ann1.TYPE.getName() + "\",\"UUID\":\"XXX\",\"SOME_DATA\":\"a<b\",\"other\":{\"v\":[1.50,null]}}";
+        Glob unknown = GlobGSonDeserializer.deserialize(Ann1.TYPE.getName(), ann, name -> null, true);
+        Assert.assertEquals(UnknownAnnotation.TYPE, unknown.getType());
+        Assert.assertSame(ann, unknown.get(UnknownAnnotation.CONTENT));
+        Assert.assertSame(unknown, GlobGSonDeserializer.resolve(unknown, name -> null, true));
+
+        Glob resolved = GlobGSonDeserializer.resolve(unknown, name -> name.equals(Ann1.TYPE.getName()) ? Ann1.TYPE : null, true);
+        Assert.assertEquals(Ann1.TYPE, resolved.getType());
+        Assert.assertEquals("a<b", resolved.get(Ann1.SOME_DATA));
+
+        String type = "{\"kind\":\"withUnknown\",\"fields\":[{\"name\":\"f\",\"type\":\"string\",\"annotations\":[" + ann + "]}]}";
+        GlobType globType = GlobsGson.createBuilder(name -> null).create().fromJson(type, GlobType.class);
+        Glob annotation = globType.getField("f").streamAnnotations()
+                .filter(glob -> glob.getType() == UnknownAnnotation.TYPE).findFirst().get();
+        Assert.assertEquals(GSonUtils.normalize(ann), GSonUtils.normalize(annotation.get(UnknownAnnotation.CONTENT)));
+    }
+
     public static class TypeToTest {
         public static GlobType TYPE;
 
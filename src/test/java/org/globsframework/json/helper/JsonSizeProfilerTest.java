@@ -0,0 +1,104 @@
+package org.globsframework.json.helper;
+
+import org.globsframework.json.annottations.JsonAsObject;
+import org.globsframework.json.annottations.JsonValueAsField;
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.metamodel.GlobTypeBuilder;
+import org.globsframework.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.metamodel.annotations.Target;
+import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.metamodel.fields.GlobField;
+import org.globsframework.metamodel.fields.IntegerField;
+import org.globsframework.metamodel.fields.StringField;
+import org.globsframework.metamodel.impl.DefaultGlobTypeBuilder;
+import org.globsframework.model.Glob;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class JsonSizeProfilerTest {
+
+    @Test
+    public void countBytesByField() {
+        GlobTypeBuilder subTypeBuilder = DefaultGlobTypeBuilder.init("sub");
+        StringField value = subTypeBuilder.declareStringField("value");
+        GlobType subType = subTypeBuilder.get();
+
+        GlobTypeBuilder globTypeBuilder = DefaultGlobTypeBuilder.init("test");
+        IntegerField id = globTypeBuilder.declareIntegerField("id");
+        StringField name = globTypeBuilder.declareStringField("name");
+        GlobField sub = globTypeBuilder.declareGlobField("sub", subType);
+        GlobType globType = globTypeBuilder.get();
+
+        JsonSizeProfiler profiler = new JsonSizeProfiler();
+        Glob glob = globType.instantiate()
+                .set(id, 1)
+                .set(name, "é")
+                .set(sub, subType.instantiate().set(value, "v"));
+        String json = profiler.encode(glob, true);
+        Assert.assertEquals("{\"_kind\":\"test\",\"id\":1,\"name\":\"é\",\"sub\":{\"value\":\"v\"}}", json);
+        profiler.record(glob, true);
+
+        Map<String, Glob> sizes = new HashMap<>();
+        for (Glob size : profiler.toGlobs()) {
+            sizes.put(size.get(JsonFieldSizeType.PATH), size);
+        }
+        Assert.assertEquals(2, sizes.get("test").get(JsonFieldSizeType.COUNT).longValue());
+        Assert.assertEquals(55, sizes.get("test").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertEquals(14, sizes.get("test._kind").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertEquals(7, sizes.get("test.id").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertEquals(12, sizes.get("test.name").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertEquals(20, sizes.get("test.sub").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertEquals(11, sizes.get("test.sub.value").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertEquals(22, sizes.get("test.sub.value").get(JsonFieldSizeType.TOTAL_BYTES).longValue());
+        Assert.assertTrue(profiler.report().contains("test.sub.value"));
+    }
+
+    @Test
+    public void countBytesOfJsonAsObjectElementsByField() {
+        JsonSizeProfiler profiler = new JsonSizeProfiler();
+        Glob glob = Entries.TYPE.instantiate()
+                .set(Entries.entries, new Glob[]{
+                        Entry.TYPE.instantiate().set(Entry.name, "a").set(Entry.value, "v1"),
+                        Entry.TYPE.instantiate().set(Entry.name, "b").set(Entry.value, "v22")});
+        String json = profiler.encode(glob, false);
+        Assert.assertEquals("{\"entries\":{\"a\":{\"value\":\"v1\"},\"b\":{\"value\":\"v22\"}}}", json);
+
+        Map<String, Glob> sizes = new HashMap<>();
+        for (Glob size : profiler.toGlobs()) {
+            sizes.put(size.get(JsonFieldSizeType.PATH), size);
+        }
+        String path = Entries.TYPE.getName() + ".entries";
+        Assert.assertEquals(2, sizes.get(path + ".value").get(JsonFieldSizeType.COUNT).longValue());
+        Assert.assertEquals(12, sizes.get(path + ".value").get(JsonFieldSizeType.MIN_BYTES).longValue());
+        Assert.assertEquals(13, sizes.get(path + ".value").get(JsonFieldSizeType.MAX_BYTES).longValue());
+        Assert.assertNull(sizes.get(path + ".name"));
+    }
+
+    public static class Entries {
+        public static GlobType TYPE;
+
+        @Target(Entry.class)
+        @JsonAsObject
+        public static GlobArrayField entries;
+
+        static {
+            GlobTypeLoaderFactory.create(Entries.class).load();
+        }
+    }
+
+    public static class Entry {
+        public static GlobType TYPE;
+
+        @JsonValueAsField
+        public static StringField name;
+
+        public static StringField value;
+
+        static {
+            GlobTypeLoaderFactory.create(Entry.class).load();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.globsframework.json.helper;
+
+import org.globsframework.metamodel.GlobType;
+import org.globsframework.metamodel.GlobTypeBuilderFactory;
+import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.metamodel.fields.GlobField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+public class LazyGlobTypeCatalogTest {
+
+    @Test
+    public void loadOnlyUsedTypes() {
+        GlobType globType3 = GlobTypeBuilderFactory.create("type3").addStringField("field3").get();
+
+        LazyGlobTypeCatalog catalog = LazyGlobTypeCatalog.index(new StringReader("[\n" +
+                "  {\n" +
+                "    \"kind\": \"type2\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"f1\",\n" +
+                "        \"kind\": \"type1\",\n" +
+                "        \"type\": \"glob\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"kind\": \"type1\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"field1\",\n" +
+                "        \"type\": \"string\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"kind\": \"unused\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"field1\",\n" +
+                "        \"type\": \"string\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"kind\": \"type3\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"field1\",\n" +
+                "        \"type\": \"string\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  }\n" +
+                "]"), name -> name.equals("type3") ? globType3 : null);
+
+        Assert.assertEquals(4, catalog.getNames().size());
+        Assert.assertEquals(0, catalog.getLoadedCount());
+
+        GlobType type2 = catalog.get("type2");
+        Assert.assertEquals(2, catalog.getLoadedCount());
+        Assert.assertSame(catalog.get("type1"), ((GlobField) type2.getField("f1")).getTargetType());
+        Assert.assertSame(globType3, catalog.get("type3"));
+        Assert.assertNull(catalog.find("type4"));
+        Assert.assertEquals(2, catalog.getLoadedCount());
+    }
+
+    @Test
+    public void typesThatReferenceEachOther() {
+        LazyGlobTypeCatalog catalog = LazyGlobTypeCatalog.index(new StringReader("[\n" +
+                "  {\n" +
+                "    \"kind\": \"typeA\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"b\",\n" +
+                "        \"kind\": \"typeB\",\n" +
+                "        \"type\": \"glob\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"kind\": \"typeB\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"a\",\n" +
+                "        \"kind\": \"typeA\",\n" +
+                "        \"type\": \"globArray\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  }\n" +
+                "]"), name -> null);
+
+        GlobType typeB = catalog.get("typeB");
+        Assert.assertEquals(2, catalog.getLoadedCount());
+        GlobType typeA = catalog.get("typeA");
+        Assert.assertSame(typeA, ((GlobArrayField) typeB.getField("a")).getTargetType());
+        Assert.assertSame(typeB, ((GlobField) typeA.getField("b")).getTargetType());
+    }
+}
@@ -2,6 +2,8 @@ package org.globsframework.json.helper;
 
 import org.globsframework.metamodel.GlobType;
 import org.globsframework.metamodel.GlobTypeBuilderFactory;
+import org.globsframework.metamodel.fields.GlobArrayField;
+import org.globsframework.metamodel.fields.GlobField;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -57,4 +59,39 @@ public class LoadingGlobTypeResolverTest {
         Assert.assertNotNull(read.get("type1"));
         Assert.assertSame(globType3, read.get("type3"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void typesThatReferenceEachOther() {
+        LoadingGlobTypeResolver.Builder builder = LoadingGlobTypeResolver.builder(name -> null);
+        builder.read(new StringReader("[\n" +
+                "  {\n" +
+                "    \"kind\": \"typeA\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"b\",\n" +
+                "        \"kind\": \"typeB\",\n" +
+                "        \"type\": \"glob\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  },\n" +
+                "  {\n" +
+                "    \"kind\": \"typeB\",\n" +
+                "    \"fields\": [\n" +
+                "      {\n" +
+                "        \"name\": \"a\",\n" +
+                "        \"kind\": \"typeA\",\n" +
+                "        \"type\": \"globArray\"\n" +
+                "      }\n" +
+                "    ]\n" +
+                "  }\n" +
+                "]"));
+
+        Map<String, GlobType> read = new HashMap<>();
+        builder.read().forEach(globType -> read.put(globType.getName(), globType));
+        Assert.assertEquals(2, read.size());
+        GlobType typeA = read.get("typeA");
+        GlobType typeB = read.get("typeB");
+        Assert.assertSame(typeB, ((GlobField) typeA.getField("b")).getTargetType());
+        Assert.assertSame(typeA, ((GlobArrayField) typeB.getField("a")).getTargetType());
+    }
+}